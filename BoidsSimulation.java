@@ -4,8 +4,12 @@ import java.awt.event.*;
 import java.awt.geom.AffineTransform;
 import java.awt.geom.Path2D;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Random;
 import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 /**
  * BoidsSimulation
@@ -18,6 +22,9 @@ import java.util.List;
  * - Obstacle avoidance (Green circles).
  * - Mouse interaction: Click and drag to add obstacles dynamically.
  * - Wrapping borders (Toroidal space).
+ * - Neighbor queries through a uniform grid rebuilt every tick.
+ * - Structure-of-arrays, double-buffered flock updated in parallel; deterministic per seed:
+ *   java BoidsSimulation [flockSize] [seed]
  */
 public class BoidsSimulation extends JPanel implements ActionListener {
 
@@ -27,13 +34,23 @@ public class BoidsSimulation extends JPanel implements ActionListener {
     private static final int FLOCK_SIZE = 150;
     private static final int OBSTACLE_COUNT = 3;
 
-    private List<Boid> flock;
+    // Perception radii shared by the rules (the grid cell size is the larger one)
+    static final double DESIRED_SEPARATION = 25.0;
+    static final double NEIGHBOR_DIST = 50.0;
+
+    private FlockEngine flock;
     private List<Obstacle> obstacles;
     private Timer timer;
+    private long lastTickNanos;
+
+    private static final Path2D BOID_SHAPE = boidShape(5.0f);
+    private static final Color BOID_COLOR = new Color(100, 200, 255);
 
     public static void main(String[] args) {
         JFrame frame = new JFrame("Boids Flocking Simulation (Java)");
-        BoidsSimulation sim = new BoidsSimulation();
+        int flockSize = args.length >= 1 ? Integer.parseInt(args[0]) : FLOCK_SIZE;
+        long seed = args.length >= 2 ? Long.parseLong(args[1]) : System.nanoTime();
+        BoidsSimulation sim = new BoidsSimulation(flockSize, seed);
 
         frame.add(sim);
         frame.setSize(WIDTH, HEIGHT);
@@ -44,19 +61,20 @@ public class BoidsSimulation extends JPanel implements ActionListener {
     }
 
     public BoidsSimulation() {
+        this(FLOCK_SIZE, System.nanoTime());
+    }
+
+    public BoidsSimulation(int flockSize, long seed) {
         this.setBackground(new Color(30, 33, 40)); // Dark background
         this.setDoubleBuffered(true);
 
-        flock = new ArrayList<>();
         obstacles = new ArrayList<>();
 
-        // Initialize Flock
-        for (int i = 0; i < FLOCK_SIZE; i++) {
-            flock.add(new Boid(WIDTH / 2.0, HEIGHT / 2.0));
-        }
+        // Initialize Flock (all at the center, seeded headings)
+        flock = new FlockEngine(flockSize, seed, WIDTH, HEIGHT);
 
         // Initialize Random Obstacles
-        Random rand = new Random();
+        Random rand = new Random(seed);
         for(int i = 0; i < OBSTACLE_COUNT; i++) {
             obstacles.add(new Obstacle(rand.nextInt(WIDTH), rand.nextInt(HEIGHT), 40));
         }
@@ -77,12 +95,10 @@ public class BoidsSimulation extends JPanel implements ActionListener {
 
     @Override
     public void actionPerformed(ActionEvent e) {
-        // Update Logic
-        for (Boid boid : flock) {
-            boid.flock(flock, obstacles);
-            boid.update();
-            boid.borders();
-        }
+        // Update Logic: previous frame in, next frame out, in parallel
+        long start = System.nanoTime();
+        flock.step(obstacles);
+        lastTickNanos = System.nanoTime() - start;
         // Repaint Screen
         repaint();
     }
@@ -101,22 +117,39 @@ public class BoidsSimulation extends JPanel implements ActionListener {
         }
 
         // Draw Boids
-        for (Boid boid : flock) {
-            boid.render(g2d);
+        g2d.setColor(BOID_COLOR);
+        AffineTransform old = g2d.getTransform();
+        for (int i = 0; i < flock.size(); i++) {
+            g2d.translate(flock.x[i], flock.y[i]);
+            g2d.rotate(Math.atan2(flock.vy[i], flock.vx[i]) + Math.PI / 2);
+            g2d.fill(BOID_SHAPE);
+            g2d.setTransform(old);
         }
 
         // Draw UI Text
         g2d.setColor(Color.WHITE);
-        g2d.drawString("Boids: " + flock.size(), 10, 20);
+        g2d.drawString(String.format("Boids: %d | Tick %.2f ms", flock.size(), lastTickNanos / 1e6), 10, 20);
         g2d.drawString("Click to add obstacles", 10, 35);
     }
 
+    // Triangle pointing up, rotated to the heading when drawn
+    private static Path2D boidShape(float r) {
+        Path2D p = new Path2D.Double();
+        p.moveTo(0, -r * 2);
+        p.lineTo(-r, r * 2);
+        p.lineTo(r, r * 2);
+        p.closePath();
+        return p;
+    }
+
     // --- INNER CLASSES ---
 
     /**
      * Represents a single bird/fish in the flock.
+     * The demo runs on FlockEngine; Boid is kept as the scalar, one-object-per-boid reference
+     * that FlockEngine reproduces and that BoidsBenchmark measures it against.
      */
-    class Boid {
+    static class Boid {
         Vector2D position;
         Vector2D velocity;
         Vector2D acceleration;
@@ -165,6 +198,64 @@ public class BoidsSimulation extends JPanel implements ActionListener {
             applyForce(avd);
         }
 
+        // Same three rules in one pass over the 3x3 grid cells around the boid
+        public void flock(SpatialGrid grid, List<Obstacle> obstacles) {
+            double sepX = 0, sepY = 0, aliX = 0, aliY = 0, cohX = 0, cohY = 0;
+            int sepCount = 0, count = 0;
+            double sepSq = DESIRED_SEPARATION * DESIRED_SEPARATION, nbrSq = NEIGHBOR_DIST * NEIGHBOR_DIST;
+
+            int cx = grid.cellX(position.x), cy = grid.cellY(position.y);
+            for (int gy = Math.max(0, cy - 1); gy <= Math.min(grid.rows - 1, cy + 1); gy++) {
+                int rowStart = gy * grid.cols;
+                int from = grid.cellStart[rowStart + Math.max(0, cx - 1)];
+                int to = grid.cellStart[rowStart + Math.min(grid.cols - 1, cx + 1) + 1]; // Adjacent cells are contiguous
+                for (int k = from; k < to; k++) {
+                    double dx = position.x - grid.x[k], dy = position.y - grid.y[k];
+                    double d2 = dx * dx + dy * dy;
+                    if (d2 == 0 || d2 >= nbrSq) continue;
+
+                    aliX += grid.vx[k]; aliY += grid.vy[k];
+                    cohX += grid.x[k]; cohY += grid.y[k];
+                    count++;
+                    if (d2 < sepSq) {
+                        // normalize(diff) / d
+                        sepX += dx / d2; sepY += dy / d2;
+                        sepCount++;
+                    }
+                }
+            }
+
+            Vector2D sep = new Vector2D(sepX, sepY);
+            if (sepCount > 0) sep.div(sepCount);
+            if (sep.mag() > 0) {
+                sep.normalize();
+                sep.mult(maxSpeed);
+                sep.sub(velocity);
+                sep.limit(maxForce);
+            }
+
+            Vector2D ali = new Vector2D(0, 0), coh = new Vector2D(0, 0);
+            if (count > 0) {
+                Vector2D sum = new Vector2D(aliX / count, aliY / count);
+                sum.normalize();
+                sum.mult(maxSpeed);
+                ali = Vector2D.sub(sum, velocity);
+                ali.limit(maxForce);
+                coh = seek(new Vector2D(cohX / count, cohY / count));
+            }
+            Vector2D avd = avoid(obstacles);
+
+            sep.mult(sepWeight);
+            ali.mult(aliWeight);
+            coh.mult(cohWeight);
+            avd.mult(avoidWeight);
+
+            applyForce(sep);
+            applyForce(ali);
+            applyForce(coh);
+            applyForce(avd);
+        }
+
         void applyForce(Vector2D force) {
             acceleration.add(force);
         }
@@ -172,7 +263,7 @@ public class BoidsSimulation extends JPanel implements ActionListener {
         // Rule 1: Separation
         // Steer to avoid crowding local flockmates
         Vector2D separate(List<Boid> boids) {
-            double desiredseparation = 25.0;
+            double desiredseparation = DESIRED_SEPARATION;
             Vector2D steer = new Vector2D(0, 0);
             int count = 0;
 
@@ -203,7 +294,7 @@ public class BoidsSimulation extends JPanel implements ActionListener {
         // Rule 2: Alignment
         // Steer towards the average heading of local flockmates
         Vector2D align(List<Boid> boids) {
-            double neighborDist = 50;
+            double neighborDist = NEIGHBOR_DIST;
             Vector2D sum = new Vector2D(0, 0);
             int count = 0;
 
@@ -230,7 +321,7 @@ public class BoidsSimulation extends JPanel implements ActionListener {
         // Rule 3: Cohesion
         // Steer to move toward the average position of local flockmates
         Vector2D cohesion(List<Boid> boids) {
-            double neighborDist = 50;
+            double neighborDist = NEIGHBOR_DIST;
             Vector2D sum = new Vector2D(0, 0);
             int count = 0;
 
@@ -285,28 +376,296 @@ public class BoidsSimulation extends JPanel implements ActionListener {
             if (position.x > WIDTH + r) position.x = -r;
             if (position.y > HEIGHT + r) position.y = -r;
         }
+    }
+
+    /**
+     * Uniform grid over the window, rebuilt every tick with a counting sort.
+     * Boids are bucketed by cell (row-major) into flat arrays holding a snapshot of their
+     * position and velocity, so a neighbor query touches only the 3x3 cells around a boid
+     * and reads primitives instead of chasing Boid objects.
+     */
+    static class SpatialGrid {
+        final double cellSize;
+        final int cols, rows;
+        final int[] cellStart;     // Boids of cell c are [cellStart[c], cellStart[c + 1])
+        private int[] cellOf = new int[0];
+        double[] x = new double[0], y = new double[0], vx = new double[0], vy = new double[0];
+
+        SpatialGrid(double cellSize, double width, double height) {
+            this.cellSize = cellSize;
+            this.cols = Math.max(1, (int) Math.ceil(width / cellSize));
+            this.rows = Math.max(1, (int) Math.ceil(height / cellSize));
+            this.cellStart = new int[cols * rows + 1];
+        }
+
+        // Boids just past the wrap margin land in the edge cells
+        int cellX(double px) { return Math.min(cols - 1, Math.max(0, (int) (px / cellSize))); }
+        int cellY(double py) { return Math.min(rows - 1, Math.max(0, (int) (py / cellSize))); }
+
+        void build(List<Boid> boids) {
+            int n = boids.size();
+            ensureCapacity(n);
+
+            // Count per cell
+            Arrays.fill(cellStart, 0);
+            for (int i = 0; i < n; i++) {
+                Boid b = boids.get(i);
+                count(i, b.position.x, b.position.y);
+            }
+            prefixSums();
+
+            // Scatter, using cellStart as the running write cursor
+            for (int i = 0; i < n; i++) {
+                Boid b = boids.get(i);
+                int k = cellStart[cellOf[i]]++;
+                x[k] = b.position.x; y[k] = b.position.y;
+                vx[k] = b.velocity.x; vy[k] = b.velocity.y;
+            }
+            restoreStarts();
+        }
+
+        // Same sort over structure-of-arrays state (no allocation once capacity is reached)
+        void build(double[] px, double[] py, double[] pvx, double[] pvy, int n) {
+            ensureCapacity(n);
+            Arrays.fill(cellStart, 0);
+            for (int i = 0; i < n; i++) count(i, px[i], py[i]);
+            prefixSums();
+            for (int i = 0; i < n; i++) {
+                int k = cellStart[cellOf[i]]++;
+                x[k] = px[i]; y[k] = py[i];
+                vx[k] = pvx[i]; vy[k] = pvy[i];
+            }
+            restoreStarts();
+        }
+
+        private void ensureCapacity(int n) {
+            if (cellOf.length < n) {
+                cellOf = new int[n];
+                x = new double[n]; y = new double[n];
+                vx = new double[n]; vy = new double[n];
+            }
+        }
+
+        private void count(int i, double px, double py) {
+            int c = cellY(py) * cols + cellX(px);
+            cellOf[i] = c;
+            cellStart[c + 1]++;
+        }
 
-        // Draw the boid
-        void render(Graphics2D g) {
-            double angle = velocity.heading() + Math.PI / 2;
+        // Counts -> first slot of each cell
+        private void prefixSums() {
+            for (int c = 0; c < cols * rows; c++) cellStart[c + 1] += cellStart[c];
+        }
+
+        // The scatter advanced every start to the next cell's start; shift back
+        private void restoreStarts() {
+            for (int c = cols * rows; c > 0; c--) cellStart[c] = cellStart[c - 1];
+            cellStart[0] = 0;
+        }
+    }
+
+    /**
+     * Structure-of-arrays flock: position and velocity live in parallel double[] arrays and are
+     * double-buffered, while each boid's steering is summed in locals. A tick reads only the previous frame (through the grid
+     * snapshot) and writes the next one, so every boid sees the same flock no matter which thread
+     * updates it or in what order. The flock is cut into fixed index ranges whose ForkJoin tasks
+     * are allocated once and re-invoked every tick, so a tick allocates nothing.
+     * The rule arithmetic mirrors Boid step for step, giving identical results.
+     */
+    static class FlockEngine {
+        private static final double MAX_FORCE = 0.05, MAX_SPEED = 3.0, R = 5.0;
+        private static final double SEP_WEIGHT = 1.5, ALI_WEIGHT = 1.0, COH_WEIGHT = 1.0, AVOID_WEIGHT = 3.0;
+        private static final int TASKS_PER_THREAD = 4;
+
+        private final int n;
+        private final double width, height;
+        private final SplittableRandom random;
+
+        double[] x, y, vx, vy;              // Current frame
+        private double[] nx, ny, nvx, nvy;  // Next frame
+
+        private final SpatialGrid grid;
+        private double[] ox = new double[0], oy = new double[0], orad = new double[0];
+        private int obstacleCount;
+
+        private final RangeTask[] tasks;
+        private final RecursiveAction root = new RecursiveAction() {
+            @Override
+            protected void compute() {
+                invokeAll(tasks);
+            }
+        };
+
+        // All boids start at the center with seeded random headings, like the demo flock
+        FlockEngine(int n, long seed, double width, double height) {
+            this.n = n;
+            this.width = width;
+            this.height = height;
+            this.random = new SplittableRandom(seed);
+            x = new double[n]; y = new double[n]; vx = new double[n]; vy = new double[n];
+            nx = new double[n]; ny = new double[n]; nvx = new double[n]; nvy = new double[n];
+            for (int i = 0; i < n; i++) {
+                double angle = random.nextDouble() * 2 * Math.PI;
+                x[i] = width / 2.0; y[i] = height / 2.0;
+                vx[i] = Math.cos(angle); vy[i] = Math.sin(angle);
+            }
+            grid = new SpatialGrid(NEIGHBOR_DIST, width, height);
+
+            int count = Math.max(1, Math.min(n, ForkJoinPool.getCommonPoolParallelism() * TASKS_PER_THREAD));
+            tasks = new RangeTask[count];
+            for (int t = 0; t < count; t++) {
+                tasks[t] = new RangeTask((int) ((long) n * t / count), (int) ((long) n * (t + 1) / count));
+            }
+        }
+
+        // Spread the flock uniformly over the world (continues the same seeded sequence)
+        void scatter() {
+            for (int i = 0; i < n; i++) {
+                x[i] = random.nextDouble() * width;
+                y[i] = random.nextDouble() * height;
+            }
+        }
+
+        int size() { return n; }
+
+        void step(List<Obstacle> obstacles) {
+            snapshotObstacles(obstacles);
+            grid.build(x, y, vx, vy, n);
+
+            if (tasks.length == 1) {
+                tasks[0].compute();
+            } else {
+                root.reinitialize();
+                for (RangeTask t : tasks) t.reinitialize();
+                ForkJoinPool.commonPool().invoke(root);
+            }
+
+            double[] t;
+            t = x; x = nx; nx = t;
+            t = y; y = ny; ny = t;
+            t = vx; vx = nvx; nvx = t;
+            t = vy; vy = nvy; nvy = t;
+        }
 
-            AffineTransform old = g.getTransform();
-            g.translate(position.x, position.y);
-            g.rotate(angle);
+        private void snapshotObstacles(List<Obstacle> obstacles) {
+            obstacleCount = obstacles.size();
+            if (ox.length < obstacleCount) {
+                ox = new double[obstacleCount * 2]; oy = new double[obstacleCount * 2]; orad = new double[obstacleCount * 2];
+            }
+            for (int k = 0; k < obstacleCount; k++) {
+                Obstacle o = obstacles.get(k);
+                ox[k] = o.position.x; oy[k] = o.position.y; orad[k] = o.radius;
+            }
+        }
 
-            g.setColor(new Color(100, 200, 255));
-            Path2D p = new Path2D.Double();
-            p.moveTo(0, -r * 2);
-            p.lineTo(-r, r * 2);
-            p.lineTo(r, r * 2);
-            p.closePath();
-            g.fill(p);
+        private class RangeTask extends RecursiveAction {
+            private final int from, to;
 
-            g.setTransform(old);
+            RangeTask(int from, int to) { this.from = from; this.to = to; }
+
+            @Override
+            protected void compute() {
+                for (int i = from; i < to; i++) steerAndMove(i);
+            }
+        }
+
+        // Boid.flock(grid, ..) + update() + borders() for boid i, previous frame in, next frame out
+        private void steerAndMove(int i) {
+            double px = x[i], py = y[i], pvx = vx[i], pvy = vy[i];
+            double sepX = 0, sepY = 0, aliX = 0, aliY = 0, cohX = 0, cohY = 0;
+            int sepCount = 0, count = 0;
+            double sepSq = DESIRED_SEPARATION * DESIRED_SEPARATION, nbrSq = NEIGHBOR_DIST * NEIGHBOR_DIST;
+
+            int cx = grid.cellX(px), cy = grid.cellY(py);
+            for (int gy = Math.max(0, cy - 1); gy <= Math.min(grid.rows - 1, cy + 1); gy++) {
+                int rowStart = gy * grid.cols;
+                int from = grid.cellStart[rowStart + Math.max(0, cx - 1)];
+                int to = grid.cellStart[rowStart + Math.min(grid.cols - 1, cx + 1) + 1];
+                for (int k = from; k < to; k++) {
+                    double dx = px - grid.x[k], dy = py - grid.y[k];
+                    double d2 = dx * dx + dy * dy;
+                    if (d2 == 0 || d2 >= nbrSq) continue;
+
+                    aliX += grid.vx[k]; aliY += grid.vy[k];
+                    cohX += grid.x[k]; cohY += grid.y[k];
+                    count++;
+                    if (d2 < sepSq) {
+                        sepX += dx / d2; sepY += dy / d2;
+                        sepCount++;
+                    }
+                }
+            }
+
+            // Separation
+            if (sepCount > 0) { sepX /= sepCount; sepY /= sepCount; }
+            double m = Math.sqrt(sepX * sepX + sepY * sepY);
+            if (m > 0) {
+                sepX /= m; sepY /= m;
+                sepX *= MAX_SPEED; sepY *= MAX_SPEED;
+                sepX -= pvx; sepY -= pvy;
+                m = Math.sqrt(sepX * sepX + sepY * sepY);
+                if (m > MAX_FORCE) { sepX /= m; sepY /= m; sepX *= MAX_FORCE; sepY *= MAX_FORCE; }
+            }
+
+            // Alignment and cohesion
+            double aliSx = 0, aliSy = 0, cohSx = 0, cohSy = 0;
+            if (count > 0) {
+                double sx = aliX / count, sy = aliY / count;
+                m = Math.sqrt(sx * sx + sy * sy);
+                if (m != 0) { sx /= m; sy /= m; }
+                sx *= MAX_SPEED; sy *= MAX_SPEED;
+                aliSx = sx - pvx; aliSy = sy - pvy;
+                m = Math.sqrt(aliSx * aliSx + aliSy * aliSy);
+                if (m > MAX_FORCE) { aliSx /= m; aliSy /= m; aliSx *= MAX_FORCE; aliSy *= MAX_FORCE; }
+
+                // seek(center of mass)
+                double dx = cohX / count - px, dy = cohY / count - py;
+                m = Math.sqrt(dx * dx + dy * dy);
+                if (m != 0) { dx /= m; dy /= m; }
+                dx *= MAX_SPEED; dy *= MAX_SPEED;
+                cohSx = dx - pvx; cohSy = dy - pvy;
+                m = Math.sqrt(cohSx * cohSx + cohSy * cohSy);
+                if (m > MAX_FORCE) { cohSx /= m; cohSy /= m; cohSx *= MAX_FORCE; cohSy *= MAX_FORCE; }
+            }
+
+            // Obstacle avoidance
+            double avdX = 0, avdY = 0;
+            for (int k = 0; k < obstacleCount; k++) {
+                double dx = px - ox[k], dy = py - oy[k];
+                double d = Math.sqrt(dx * dx + dy * dy);
+                if (d < orad[k] + 50) {
+                    if (d != 0) { dx /= d; dy /= d; }
+                    dx *= MAX_SPEED; dy *= MAX_SPEED;
+                    double fx = dx - pvx, fy = dy - pvy;
+                    m = Math.sqrt(fx * fx + fy * fy);
+                    if (m > MAX_FORCE * 2) { fx /= m; fy /= m; fx *= MAX_FORCE * 2; fy *= MAX_FORCE * 2; }
+                    avdX += fx; avdY += fy;
+                }
+            }
+
+            double accX = 0, accY = 0;
+            accX += sepX * SEP_WEIGHT; accY += sepY * SEP_WEIGHT;
+            accX += aliSx * ALI_WEIGHT; accY += aliSy * ALI_WEIGHT;
+            accX += cohSx * COH_WEIGHT; accY += cohSy * COH_WEIGHT;
+            accX += avdX * AVOID_WEIGHT; accY += avdY * AVOID_WEIGHT;
+
+            // update()
+            double nvxi = pvx + accX, nvyi = pvy + accY;
+            m = Math.sqrt(nvxi * nvxi + nvyi * nvyi);
+            if (m > MAX_SPEED) { nvxi /= m; nvyi /= m; nvxi *= MAX_SPEED; nvyi *= MAX_SPEED; }
+            double nxi = px + nvxi, nyi = py + nvyi;
+
+            // borders()
+            if (nxi < -R) nxi = width + R;
+            if (nyi < -R) nyi = height + R;
+            if (nxi > width + R) nxi = -R;
+            if (nyi > height + R) nyi = -R;
+
+            nx[i] = nxi; ny[i] = nyi; nvx[i] = nvxi; nvy[i] = nvyi;
         }
     }
 
-    class Obstacle {
+    static class Obstacle {
         Vector2D position;
         double radius;
 
@@ -352,8 +711,6 @@ public class BoidsSimulation extends JPanel implements ActionListener {
             }
         }
 
-        double heading() { return Math.atan2(y, x); }
-
         static Vector2D sub(Vector2D v1, Vector2D v2) {
             return new Vector2D(v1.x - v2.x, v1.y - v2.y);
         }
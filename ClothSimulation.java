@@ -1,8 +1,21 @@
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.*;
-import java.util.ArrayList;
-
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * ClothSimulation
+ * A tearable cloth made of Verlet particles joined by distance constraints.
+ * * Features:
+ * - Structural and shear constraints relaxed ITERATIONS times per frame; overstretched ones tear.
+ * - Flat-array engine, so large cloths keep up with the frame timer:
+ *   java ClothSimulation [cols] [rows]     (e.g. 500 500)
+ * - Constraints split into independent color batches, each relaxed in parallel (P toggles).
+ */
 public class ClothSimulation extends JPanel implements ActionListener {
     private static final int WIDTH = 1000;
     private static final int HEIGHT = 700;
@@ -12,16 +25,78 @@ public class ClothSimulation extends JPanel implements ActionListener {
     private static final double GRAVITY = 0.5;
     private static final int ITERATIONS = 3; // Constraint solving iterations
     private static final double TEAR_DISTANCE = 35; // Distance before tearing
+    private static final int LINE_LIMIT = 20_000; // Above this many constraints, draw into a raster
+
+    private static final Color NORMAL = new Color(150, 150, 200);
+    private static final Color STRESSED = new Color(255, 200, 100);
+    private static final Color TEARING = new Color(255, 100, 100);
+    private static final Color PINNED = new Color(255, 200, 0);
+    private static final Color PARTICLE = new Color(200, 200, 255);
+    private static final Color BACKGROUND = new Color(20, 20, 30);
 
-    private Point[][] points;
-    private ArrayList<Constraint> constraints;
+    private final int cols, rows;
+    private ClothEngine cloth;
     private Timer timer;
-    private Point draggedPoint;
+    private int draggedPoint = -1;
     private boolean isRightClick;
+    private long lastStepNanos;
+    private boolean parallel = true;
+    private BufferedImage raster;
+
+    private static void usage() {
+        System.err.println("Usage: java ClothSimulation [cols] [rows]   (at least 2x2, e.g. 500 500)");
+    }
+
+    public static void main(String[] args) {
+        int cols, rows;
+        try {
+            cols = args.length >= 1 ? Integer.parseInt(args[0]) : CLOTH_WIDTH;
+            rows = args.length >= 2 ? Integer.parseInt(args[1]) : (args.length == 1 ? cols : CLOTH_HEIGHT);
+        } catch (NumberFormatException e) {
+            cols = rows = 0;
+        }
+        if (cols < 2 || rows < 2) {
+            System.err.println("Bad cloth size '" + String.join(" ", args) + "', expected cols and rows of at least 2");
+            usage();
+            return;
+        }
+        int clothCols = cols, clothRows = rows;
+        SwingUtilities.invokeLater(() -> {
+            JFrame frame = new JFrame("Cloth Simulation - Verlet Integration");
+            ClothSimulation cloth = new ClothSimulation(clothCols, clothRows);
+
+            // Add keyboard listener for reset
+            cloth.addKeyListener(new KeyAdapter() {
+                @Override
+                public void keyPressed(KeyEvent e) {
+                    if (e.getKeyCode() == KeyEvent.VK_R) {
+                        cloth.initializeCloth();
+                    } else if (e.getKeyCode() == KeyEvent.VK_P) {
+                        cloth.parallel = !cloth.parallel;
+                        cloth.cloth.parallel = cloth.parallel;
+                    }
+                }
+            });
+            cloth.setFocusable(true);
+
+            frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+            frame.add(cloth);
+            frame.pack();
+            frame.setLocationRelativeTo(null);
+            frame.setResizable(false);
+            frame.setVisible(true);
+        });
+    }
 
     public ClothSimulation() {
+        this(CLOTH_WIDTH, CLOTH_HEIGHT);
+    }
+
+    public ClothSimulation(int cols, int rows) {
+        this.cols = cols;
+        this.rows = rows;
         setPreferredSize(new Dimension(WIDTH, HEIGHT));
-        setBackground(new Color(20, 20, 30));
+        setBackground(BACKGROUND);
 
         initializeCloth();
 
@@ -29,16 +104,16 @@ public class ClothSimulation extends JPanel implements ActionListener {
         MouseAdapter mouseAdapter = new MouseAdapter() {
             @Override
             public void mousePressed(MouseEvent e) {
-                Point clicked = findNearestPoint(e.getX(), e.getY());
-                if (clicked != null) {
+                int clicked = cloth.nearestParticle(e.getX(), e.getY(), 20);
+                if (clicked >= 0) {
                     if (SwingUtilities.isRightMouseButton(e)) {
                         // Right click - cut/tear
                         isRightClick = true;
-                        tearNearConstraints(e.getX(), e.getY());
+                        cloth.tearNear(e.getX(), e.getY(), 15);
                     } else {
                         // Left click - drag
                         draggedPoint = clicked;
-                        draggedPoint.pinned = true;
+                        cloth.pinned[draggedPoint] = true;
                         isRightClick = false;
                     }
                 }
@@ -46,23 +121,23 @@ public class ClothSimulation extends JPanel implements ActionListener {
 
             @Override
             public void mouseReleased(MouseEvent e) {
-                if (draggedPoint != null && !isRightClick) {
+                if (draggedPoint >= 0 && !isRightClick) {
                     // Only unpin if it wasn't originally pinned at top
-                    if (draggedPoint.y > 50) {
-                        draggedPoint.pinned = false;
+                    if (cloth.y[draggedPoint] > 50) {
+                        cloth.pinned[draggedPoint] = false;
                     }
-                    draggedPoint = null;
+                    draggedPoint = -1;
                 }
             }
 
             @Override
             public void mouseDragged(MouseEvent e) {
-                if (draggedPoint != null && !isRightClick) {
-                    draggedPoint.x = e.getX();
-                    draggedPoint.y = e.getY();
+                if (draggedPoint >= 0 && !isRightClick) {
+                    cloth.x[draggedPoint] = e.getX();
+                    cloth.y[draggedPoint] = e.getY();
                 } else if (isRightClick) {
                     // Continue tearing while dragging
-                    tearNearConstraints(e.getX(), e.getY());
+                    cloth.tearNear(e.getX(), e.getY(), 15);
                 }
             }
         };
@@ -75,129 +150,106 @@ public class ClothSimulation extends JPanel implements ActionListener {
     }
 
     private void initializeCloth() {
-        points = new Point[CLOTH_HEIGHT][CLOTH_WIDTH];
-        constraints = new ArrayList<>();
-
-        // Create points
-        int startX = (WIDTH - (int)(CLOTH_WIDTH * SPACING)) / 2;
-        int startY = 50;
-
-        for (int y = 0; y < CLOTH_HEIGHT; y++) {
-            for (int x = 0; x < CLOTH_WIDTH; x++) {
-                double px = startX + x * SPACING;
-                double py = startY + y * SPACING;
-                points[y][x] = new Point(px, py);
-
-                // Pin top row
-                if (y == 0) {
-                    points[y][x].pinned = true;
-                }
-            }
-        }
-
-        // Create constraints (horizontal, vertical, and diagonal for stability)
-        for (int y = 0; y < CLOTH_HEIGHT; y++) {
-            for (int x = 0; x < CLOTH_WIDTH; x++) {
-                // Horizontal constraint
-                if (x < CLOTH_WIDTH - 1) {
-                    constraints.add(new Constraint(points[y][x], points[y][x + 1]));
-                }
-
-                // Vertical constraint
-                if (y < CLOTH_HEIGHT - 1) {
-                    constraints.add(new Constraint(points[y][x], points[y + 1][x]));
-                }
-
-                // Diagonal constraints (for shear resistance)
-                if (x < CLOTH_WIDTH - 1 && y < CLOTH_HEIGHT - 1) {
-                    constraints.add(new Constraint(points[y][x], points[y + 1][x + 1]));
-                    constraints.add(new Constraint(points[y][x + 1], points[y + 1][x]));
-                }
-            }
-        }
+        cloth = new ClothEngine(cols, rows, WIDTH, HEIGHT);
+        cloth.parallel = parallel;
+        draggedPoint = -1;
     }
 
-    private Point findNearestPoint(int mouseX, int mouseY) {
-        Point nearest = null;
-        double minDist = 20; // Maximum distance to grab
-
-        for (int y = 0; y < CLOTH_HEIGHT; y++) {
-            for (int x = 0; x < CLOTH_WIDTH; x++) {
-                double dx = points[y][x].x - mouseX;
-                double dy = points[y][x].y - mouseY;
-                double dist = Math.sqrt(dx * dx + dy * dy);
+    @Override
+    protected void paintComponent(Graphics g) {
+        super.paintComponent(g);
+        Graphics2D g2d = (Graphics2D) g;
 
-                if (dist < minDist) {
-                    minDist = dist;
-                    nearest = points[y][x];
-                }
-            }
+        if (cloth.constraintCount() > LINE_LIMIT) {
+            g2d.drawImage(rasterize(), 0, 0, null);
+        } else {
+            drawLines(g2d);
         }
 
-        return nearest;
+        // Draw info
+        drawInfo(g2d);
     }
 
-    private void tearNearConstraints(int mouseX, int mouseY) {
-        ArrayList<Constraint> toRemove = new ArrayList<>();
-
-        for (Constraint c : constraints) {
-            // Check if constraint is near mouse
-            double midX = (c.p1.x + c.p2.x) / 2;
-            double midY = (c.p1.y + c.p2.y) / 2;
-
-            double dx = midX - mouseX;
-            double dy = midY - mouseY;
-            double dist = Math.sqrt(dx * dx + dy * dy);
+    private void drawLines(Graphics2D g2d) {
+        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        ClothEngine c = cloth;
 
-            if (dist < 15) {
-                toRemove.add(c);
+        // Draw constraints (cloth lines), colored by stress
+        g2d.setStroke(new BasicStroke(1));
+        for (int b = 0; b < ClothEngine.COLORS; b++) {
+            for (int k = c.batchStart[b]; k < c.batchStart[b] + c.batchCount[b]; k++) {
+                g2d.setColor(stressColor(c.stress(k)));
+                int i = c.ca[k], j = c.cb[k];
+                g2d.drawLine((int) c.x[i], (int) c.y[i], (int) c.x[j], (int) c.y[j]);
             }
         }
 
-        constraints.removeAll(toRemove);
-    }
-
-    @Override
-    protected void paintComponent(Graphics g) {
-        super.paintComponent(g);
-        Graphics2D g2d = (Graphics2D) g;
-
-        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-
-        // Draw constraints (cloth lines)
-        g2d.setStroke(new BasicStroke(1));
-        for (Constraint c : constraints) {
-            // Color based on stress
-            double currentLength = c.getCurrentLength();
-            double stress = Math.abs(currentLength - c.restLength) / c.restLength;
-
-            if (stress > 0.5) {
-                g2d.setColor(new Color(255, 100, 100)); // Red - high stress
-            } else if (stress > 0.3) {
-                g2d.setColor(new Color(255, 200, 100)); // Orange - medium stress
+        // Draw points
+        for (int i = 0; i < c.particleCount(); i++) {
+            if (c.pinned[i]) {
+                g2d.setColor(PINNED);
+                g2d.fillOval((int) c.x[i] - 3, (int) c.y[i] - 3, 6, 6);
             } else {
-                g2d.setColor(new Color(150, 150, 200)); // Blue - normal
+                g2d.setColor(PARTICLE);
+                g2d.fillOval((int) c.x[i] - 2, (int) c.y[i] - 2, 4, 4);
             }
+        }
+    }
 
-            g2d.drawLine((int) c.p1.x, (int) c.p1.y, (int) c.p2.x, (int) c.p2.y);
+    // Large cloths: one-pixel lines straight into an int raster, particles are too dense to draw
+    private BufferedImage rasterize() {
+        if (raster == null) {
+            raster = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+        }
+        int[] pixels = ((DataBufferInt) raster.getRaster().getDataBuffer()).getData();
+        Arrays.fill(pixels, BACKGROUND.getRGB());
+        ClothEngine c = cloth;
+        for (int b = 0; b < ClothEngine.COLORS; b++) {
+            for (int k = c.batchStart[b]; k < c.batchStart[b] + c.batchCount[b]; k++) {
+                int i = c.ca[k], j = c.cb[k];
+                plotLine(pixels, (int) c.x[i], (int) c.y[i], (int) c.x[j], (int) c.y[j], stressColor(c.stress(k)).getRGB());
+            }
+        }
+        int pinned = PINNED.getRGB();
+        for (int i = 0; i < c.particleCount(); i++) {
+            if (c.pinned[i]) {
+                plotLine(pixels, (int) c.x[i], (int) c.y[i], (int) c.x[i], (int) c.y[i], pinned);
+            }
         }
+        return raster;
+    }
 
-        // Draw points
-        for (int y = 0; y < CLOTH_HEIGHT; y++) {
-            for (int x = 0; x < CLOTH_WIDTH; x++) {
-                Point p = points[y][x];
-                if (p.pinned) {
-                    g2d.setColor(new Color(255, 200, 0)); // Gold - pinned
-                    g2d.fillOval((int) p.x - 3, (int) p.y - 3, 6, 6);
-                } else {
-                    g2d.setColor(new Color(200, 200, 255)); // Light blue
-                    g2d.fillOval((int) p.x - 2, (int) p.y - 2, 4, 4);
-                }
+    // Bresenham, clipped per pixel
+    private static void plotLine(int[] pixels, int x0, int y0, int x1, int y1, int rgb) {
+        int dx = Math.abs(x1 - x0), sx = x0 < x1 ? 1 : -1;
+        int dy = -Math.abs(y1 - y0), sy = y0 < y1 ? 1 : -1;
+        int err = dx + dy;
+        while (true) {
+            if (x0 >= 0 && x0 < WIDTH && y0 >= 0 && y0 < HEIGHT) {
+                pixels[y0 * WIDTH + x0] = rgb;
+            }
+            if (x0 == x1 && y0 == y1) {
+                return;
+            }
+            int e2 = 2 * err;
+            if (e2 >= dy) {
+                err += dy;
+                x0 += sx;
+            }
+            if (e2 <= dx) {
+                err += dx;
+                y0 += sy;
             }
         }
+    }
 
-        // Draw info
-        drawInfo(g2d);
+    private static Color stressColor(double stress) {
+        if (stress > 0.5) {
+            return TEARING; // Red - high stress
+        } else if (stress > 0.3) {
+            return STRESSED; // Orange - medium stress
+        }
+        return NORMAL; // Blue - normal
     }
 
     private void drawInfo(Graphics2D g2d) {
@@ -206,24 +258,27 @@ public class ClothSimulation extends JPanel implements ActionListener {
         g2d.drawString("Cloth Simulation (Verlet Integration)", 10, 25);
 
         g2d.setFont(new Font("Arial", Font.PLAIN, 12));
-        g2d.drawString("Constraints: " + constraints.size(), 10, 45);
+        g2d.drawString(String.format("Particles: %dx%d | Constraints: %d | Physics %.2f ms | Solve %.2f ms (%s)",
+                cols, rows, cloth.constraintCount(), lastStepNanos / 1e6, cloth.solveNanos / 1e6,
+                parallel ? "parallel" : "serial"), 10, 45);
+        g2d.drawString("Press P: Parallel/serial solve", 10, HEIGHT - 65);
         g2d.drawString("Left Click & Drag: Move cloth", 10, HEIGHT - 50);
         g2d.drawString("Right Click & Drag: Cut/Tear cloth", 10, HEIGHT - 35);
         g2d.drawString("Press R: Reset cloth", 10, HEIGHT - 20);
 
         // Draw stress indicator
         g2d.drawString("Stress Colors:", WIDTH - 200, HEIGHT - 50);
-        g2d.setColor(new Color(150, 150, 200));
+        g2d.setColor(NORMAL);
         g2d.fillRect(WIDTH - 200, HEIGHT - 40, 30, 5);
         g2d.setColor(Color.WHITE);
         g2d.drawString("Normal", WIDTH - 165, HEIGHT - 35);
 
-        g2d.setColor(new Color(255, 200, 100));
+        g2d.setColor(STRESSED);
         g2d.fillRect(WIDTH - 200, HEIGHT - 30, 30, 5);
         g2d.setColor(Color.WHITE);
         g2d.drawString("Stressed", WIDTH - 165, HEIGHT - 25);
 
-        g2d.setColor(new Color(255, 100, 100));
+        g2d.setColor(TEARING);
         g2d.fillRect(WIDTH - 200, HEIGHT - 20, 30, 5);
         g2d.setColor(Color.WHITE);
         g2d.drawString("Tearing", WIDTH - 165, HEIGHT - 15);
@@ -231,157 +286,307 @@ public class ClothSimulation extends JPanel implements ActionListener {
 
     @Override
     public void actionPerformed(ActionEvent e) {
-        updatePhysics();
+        long start = System.nanoTime();
+        cloth.step();
+        lastStepNanos = System.nanoTime() - start;
         repaint();
     }
 
-    private void updatePhysics() {
-        // Verlet Integration - update positions
-        for (int y = 0; y < CLOTH_HEIGHT; y++) {
-            for (int x = 0; x < CLOTH_WIDTH; x++) {
-                Point p = points[y][x];
-
-                if (!p.pinned) {
-                    // Verlet integration: velocity = current - previous
-                    double vx = p.x - p.oldX;
-                    double vy = p.y - p.oldY;
-
-                    // Damping
-                    vx *= 0.99;
-                    vy *= 0.99;
-
-                    // Save current position
-                    p.oldX = p.x;
-                    p.oldY = p.y;
-
-                    // Update position with velocity and gravity
-                    p.x += vx;
-                    p.y += vy + GRAVITY;
-
-                    // Keep cloth on screen
-                    if (p.y > HEIGHT - 10) {
-                        p.y = HEIGHT - 10;
-                        p.oldY = p.y;
+    // --- Cloth engine ---
+
+    /**
+     * Particle i lives in x[i], y[i] with its previous position in oldX[i], oldY[i]; constraint k
+     * joins particles ca[k] and cb[k] at rest length rest[k].
+     * Constraints are stored in COLORS batches, contiguous ranges no two of whose constraints share
+     * a particle: horizontal by column parity, both diagonals and vertical by row parity. A batch
+     * can therefore be relaxed in any order, or in parallel, with the same result, and relaxing the
+     * batches one after another is still a Gauss-Seidel sweep.
+     * A relaxation pass only flags overstretched constraints in a bitset; they are compacted
+     * afterwards by swap-remove within their batch, so tearing is O(1) per constraint and a step
+     * allocates nothing.
+     */
+    static class ClothEngine {
+        static final int COLORS = 8;
+        private static final int TASKS_PER_THREAD = 4;
+        private static final int PARALLEL_MIN = 8192; // Smaller batches are relaxed inline
+
+        final int cols, rows;
+        final double spacing, gravity, tearDistance;
+        final double minX, maxX, maxY;
+        final double[] x, y, oldX, oldY;
+        final boolean[] pinned;
+        final int[] ca, cb;
+        final double[] rest;
+        final int[] batchStart = new int[COLORS], batchCount = new int[COLORS];
+        private int count;
+        private final long[] torn;
+
+        volatile boolean parallel = true;
+        long solveNanos; // Constraint relaxation and compaction in the last step
+
+        private int batch;
+        private final RelaxTask[] tasks;
+        private final RecursiveAction root = new RecursiveAction() {
+            @Override
+            protected void compute() {
+                invokeAll(tasks);
+            }
+        };
+
+        /** Cloth hanging from its top row, spaced to fit a width x height world. */
+        ClothEngine(int cols, int rows, int width, int height) {
+            if (cols < 2 || rows < 2) {
+                throw new IllegalArgumentException("cloth needs at least 2x2 particles");
+            }
+            this.cols = cols;
+            this.rows = rows;
+            // The default cloth keeps SPACING; bigger ones shrink to fit and scale the physics with them
+            spacing = Math.min(SPACING, Math.min((width - 100.0) / (cols - 1), (height - 150.0) / (rows - 1)));
+            gravity = GRAVITY * spacing / SPACING;
+            tearDistance = TEAR_DISTANCE * spacing / SPACING;
+            minX = 10;
+            maxX = width - 10;
+            maxY = height - 10;
+
+            int n = cols * rows;
+            x = new double[n];
+            y = new double[n];
+            oldX = new double[n];
+            oldY = new double[n];
+            pinned = new boolean[n];
+
+            int startX = (width - (int) (cols * spacing)) / 2;
+            int startY = 50;
+            for (int r = 0; r < rows; r++) {
+                for (int c = 0; c < cols; c++) {
+                    int i = r * cols + c;
+                    x[i] = oldX[i] = startX + c * spacing;
+                    y[i] = oldY[i] = startY + r * spacing;
+                    pinned[i] = r == 0; // Pin top row
+                }
+            }
+
+            // Size the batches, each starting on a 64-constraint word of the torn bitset
+            addConstraints(false);
+            int capacity = 0;
+            for (int b = 0; b < COLORS; b++) {
+                batchStart[b] = capacity;
+                capacity += (batchCount[b] + 63) & ~63;
+                batchCount[b] = 0;
+            }
+            ca = new int[capacity];
+            cb = new int[capacity];
+            rest = new double[capacity];
+            torn = new long[capacity >> 6];
+            addConstraints(true);
+
+            int parts = Math.max(1, ForkJoinPool.getCommonPoolParallelism() * TASKS_PER_THREAD);
+            tasks = new RelaxTask[parts];
+            for (int t = 0; t < parts; t++) {
+                tasks[t] = new RelaxTask(t);
+            }
+        }
+
+        // Horizontal, both diagonals for shear resistance, then vertical; counts only unless fill.
+        // The verticals carry the cloth's weight, so their batches come last in every sweep.
+        private void addConstraints(boolean fill) {
+            for (int r = 0; r < rows; r++) {
+                for (int c = 0; c < cols; c++) {
+                    int i = r * cols + c;
+                    if (c < cols - 1) {
+                        addConstraint(fill, c & 1, i, i + 1);
                     }
-                    if (p.x < 10) {
-                        p.x = 10;
-                        p.oldX = p.x;
+                    if (c < cols - 1 && r < rows - 1) {
+                        addConstraint(fill, 2 + (r & 1), i, i + cols + 1);
+                        addConstraint(fill, 4 + (r & 1), i + 1, i + cols);
                     }
-                    if (p.x > WIDTH - 10) {
-                        p.x = WIDTH - 10;
-                        p.oldX = p.x;
+                    if (r < rows - 1) {
+                        addConstraint(fill, 6 + (r & 1), i, i + cols);
                     }
                 }
             }
         }
 
-        // Constraint solving (multiple iterations for stability)
-        for (int iter = 0; iter < ITERATIONS; iter++) {
-            // Check and remove torn constraints
-            ArrayList<Constraint> toRemove = new ArrayList<>();
-
-            for (Constraint c : constraints) {
-                double currentLength = c.getCurrentLength();
-
-                // Tear if stretched too much
-                if (currentLength > TEAR_DISTANCE) {
-                    toRemove.add(c);
-                    continue;
-                }
-
-                // Satisfy constraint
-                c.satisfy();
+        private void addConstraint(boolean fill, int color, int i, int j) {
+            if (fill) {
+                int k = batchStart[color] + batchCount[color];
+                ca[k] = i;
+                cb[k] = j;
+                double dx = x[j] - x[i];
+                double dy = y[j] - y[i];
+                rest[k] = Math.sqrt(dx * dx + dy * dy);
+                count++;
             }
+            batchCount[color]++;
+        }
 
-            constraints.removeAll(toRemove);
+        int particleCount() {
+            return x.length;
         }
-    }
 
-    // Point class representing a particle in the cloth
-    class Point {
-        double x, y;        // Current position
-        double oldX, oldY;  // Previous position (for Verlet integration)
-        boolean pinned;     // Is this point fixed in place?
-
-        public Point(double x, double y) {
-            this.x = x;
-            this.y = y;
-            this.oldX = x;
-            this.oldY = y;
-            this.pinned = false;
+        int constraintCount() {
+            return count;
         }
-    }
 
-    // Constraint class representing a connection between two points
-    class Constraint {
-        Point p1, p2;
-        double restLength; // Original distance between points
+        /** Relative deviation of constraint k from its rest length. */
+        double stress(int k) {
+            double dx = x[cb[k]] - x[ca[k]];
+            double dy = y[cb[k]] - y[ca[k]];
+            return Math.abs(Math.sqrt(dx * dx + dy * dy) - rest[k]) / rest[k];
+        }
 
-        public Constraint(Point p1, Point p2) {
-            this.p1 = p1;
-            this.p2 = p2;
+        void step() {
+            integrate();
+            // Constraint solving (multiple iterations for stability), one color batch after another
+            long start = System.nanoTime();
+            for (int iter = 0; iter < ITERATIONS; iter++) {
+                for (int b = 0; b < COLORS; b++) {
+                    relaxBatch(b);
+                }
+                removeTorn();
+            }
+            solveNanos = System.nanoTime() - start;
+        }
 
-            // Calculate rest length
-            double dx = p2.x - p1.x;
-            double dy = p2.y - p1.y;
-            this.restLength = Math.sqrt(dx * dx + dy * dy);
+        private void integrate() {
+            for (int i = 0; i < x.length; i++) {
+                if (pinned[i]) {
+                    continue;
+                }
+                // Verlet integration: velocity = current - previous, damped
+                double vx = (x[i] - oldX[i]) * 0.99;
+                double vy = (y[i] - oldY[i]) * 0.99;
+                oldX[i] = x[i];
+                oldY[i] = y[i];
+                x[i] += vx;
+                y[i] += vy + gravity;
+
+                // Keep cloth on screen
+                if (y[i] > maxY) {
+                    y[i] = maxY;
+                    oldY[i] = y[i];
+                }
+                if (x[i] < minX) {
+                    x[i] = minX;
+                    oldX[i] = x[i];
+                }
+                if (x[i] > maxX) {
+                    x[i] = maxX;
+                    oldX[i] = x[i];
+                }
+            }
         }
 
-        public double getCurrentLength() {
-            double dx = p2.x - p1.x;
-            double dy = p2.y - p1.y;
-            return Math.sqrt(dx * dx + dy * dy);
+        private void relaxBatch(int b) {
+            int start = batchStart[b], live = batchCount[b];
+            if (!parallel || tasks.length == 1 || live < PARALLEL_MIN) {
+                relax(start, start + live);
+            } else {
+                batch = b;
+                root.reinitialize();
+                for (RelaxTask t : tasks) t.reinitialize();
+                ForkJoinPool.commonPool().invoke(root);
+            }
         }
 
-        public void satisfy() {
-            // Calculate current distance
-            double dx = p2.x - p1.x;
-            double dy = p2.y - p1.y;
-            double currentLength = Math.sqrt(dx * dx + dy * dy);
+        // Part t of the live range of the current batch; cuts fall on bitset words so no two parts share one
+        private final class RelaxTask extends RecursiveAction {
+            private final int part;
 
-            if (currentLength == 0) return;
+            RelaxTask(int part) {
+                this.part = part;
+            }
 
-            // Calculate difference from rest length
-            double diff = (currentLength - restLength) / currentLength;
+            @Override
+            protected void compute() {
+                int start = batchStart[batch], live = batchCount[batch];
+                relax(start + cut(live, part), start + cut(live, part + 1));
+            }
 
-            // Move points to satisfy constraint (Hooke's Law approximation)
-            double offsetX = dx * diff * 0.5;
-            double offsetY = dy * diff * 0.5;
+            private int cut(int live, int t) {
+                return t == tasks.length ? live : (int) ((long) live * t / tasks.length) & ~63;
+            }
+        }
 
-            if (!p1.pinned) {
-                p1.x += offsetX;
-                p1.y += offsetY;
+        // Relaxes constraints [from, to); overstretched ones are flagged instead of satisfied
+        private void relax(int from, int to) {
+            double[] x = this.x, y = this.y;
+            for (int k = from; k < to; k++) {
+                int i = ca[k], j = cb[k];
+                double dx = x[j] - x[i];
+                double dy = y[j] - y[i];
+                double length = Math.sqrt(dx * dx + dy * dy);
+                if (length > tearDistance) {
+                    torn[k >> 6] |= 1L << k;
+                    continue;
+                }
+                if (length == 0) {
+                    continue;
+                }
+                // Move both ends halfway towards the rest length
+                double diff = (length - rest[k]) / length;
+                double offsetX = dx * diff * 0.5;
+                double offsetY = dy * diff * 0.5;
+                if (!pinned[i]) {
+                    x[i] += offsetX;
+                    y[i] += offsetY;
+                }
+                if (!pinned[j]) {
+                    x[j] -= offsetX;
+                    y[j] -= offsetY;
+                }
             }
+        }
 
-            if (!p2.pinned) {
-                p2.x -= offsetX;
-                p2.y -= offsetY;
+        // Highest index first, so the constraint swapped into a hole is never itself torn
+        private void removeTorn() {
+            for (int b = 0; b < COLORS; b++) {
+                int start = batchStart[b];
+                for (int w = (start + batchCount[b] - 1) >> 6; w >= start >> 6; w--) {
+                    long bits = torn[w];
+                    torn[w] = 0;
+                    while (bits != 0) {
+                        int bit = 63 - Long.numberOfLeadingZeros(bits);
+                        bits &= ~(1L << bit);
+                        int k = (w << 6) + bit;
+                        int last = start + --batchCount[b];
+                        ca[k] = ca[last];
+                        cb[k] = cb[last];
+                        rest[k] = rest[last];
+                        count--;
+                    }
+                }
             }
         }
-    }
 
-    public static void main(String[] args) {
-        SwingUtilities.invokeLater(() -> {
-            JFrame frame = new JFrame("Cloth Simulation - Verlet Integration");
-            ClothSimulation cloth = new ClothSimulation();
+        /** Index of the particle nearest to (px, py) within maxDist, or -1. */
+        int nearestParticle(double px, double py, double maxDist) {
+            int nearest = -1;
+            double best = maxDist * maxDist;
+            for (int i = 0; i < x.length; i++) {
+                double dx = x[i] - px;
+                double dy = y[i] - py;
+                double d = dx * dx + dy * dy;
+                if (d < best) {
+                    best = d;
+                    nearest = i;
+                }
+            }
+            return nearest;
+        }
 
-            // Add keyboard listener for reset
-            cloth.addKeyListener(new KeyAdapter() {
-                @Override
-                public void keyPressed(KeyEvent e) {
-                    if (e.getKeyCode() == KeyEvent.VK_R) {
-                        cloth.initializeCloth();
+        /** Cuts every constraint whose midpoint lies within radius of (px, py). */
+        void tearNear(double px, double py, double radius) {
+            for (int b = 0; b < COLORS; b++) {
+                for (int k = batchStart[b]; k < batchStart[b] + batchCount[b]; k++) {
+                    double dx = (x[ca[k]] + x[cb[k]]) / 2 - px;
+                    double dy = (y[ca[k]] + y[cb[k]]) / 2 - py;
+                    if (dx * dx + dy * dy < radius * radius) {
+                        torn[k >> 6] |= 1L << k;
                     }
                 }
-            });
-            cloth.setFocusable(true);
-
-            frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
-            frame.add(cloth);
-            frame.pack();
-            frame.setLocationRelativeTo(null);
-            frame.setResizable(false);
-            frame.setVisible(true);
-        });
+            }
+            removeTorn();
+        }
     }
 }
\ No newline at end of file
@@ -1,30 +1,77 @@
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.*;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
 import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
+/**
+ * Conway's Game of Life
+ * * Engines (pluggable, see LifeEngine):
+ * - Array: the original boolean[][] reference implementation.
+ * - Bit-packed: 64 cells per long, SWAR neighbor counting, row stripes on a ForkJoin pool.
+ * - Sparse tiles: 32x32 tiles, only tiles near last generation's changes are recomputed.
+ * - HashLife: memoized quadtree on an unbounded plane, jumps 2^k generations per call.
+ * * The board is toroidal (HashLife: a window onto an unbounded plane) and can be far
+ * larger than the window; only the visible viewport is painted.
+ * Arrow keys pan (Shift = one screen), Home re-centers. "Step 2^k" jumps 2^k generations.
+ * * Run:
+ *   java GameOfLife                      (120 x 90)
+ *   java -Xmx4g GameOfLife 20000 20000   (width height)
+ */
 public class GameOfLife extends JPanel implements ActionListener {
     private static final int CELL_SIZE = 8;
-    private static final int GRID_WIDTH = 120;
-    private static final int GRID_HEIGHT = 90;
-    private static final int WIDTH = GRID_WIDTH * CELL_SIZE;
-    private static final int HEIGHT = GRID_HEIGHT * CELL_SIZE;
+    private static final int DEFAULT_GRID_WIDTH = 120;
+    private static final int DEFAULT_GRID_HEIGHT = 90;
+    private static final int VIEW_COLS = 120; // Visible viewport, in cells
+    private static final int VIEW_ROWS = 90;
+    private static final int WIDTH = VIEW_COLS * CELL_SIZE;
+    private static final int HEIGHT = VIEW_ROWS * CELL_SIZE;
 
-    private boolean[][] grid;
-    private boolean[][] nextGrid;
+    private static final Color ALIVE_COLOR = new Color(0, 200, 255);
+    private static final Color DEAD_COLOR = new Color(30, 30, 40);
+
+    static final String ENGINE_BIT_PACKED = "Bit-packed";
+    static final String ENGINE_ARRAY = "Array";
+    static final String ENGINE_SPARSE = "Sparse tiles";
+    static final String ENGINE_HASHLIFE = "HashLife";
+
+    private final int gridWidth;
+    private final int gridHeight;
+    private LifeEngine engine;
+    private int viewRow, viewCol; // Top-left cell of the viewport
     private Timer timer;
     private boolean isRunning = false;
-    private int generation = 0;
+    private long generation = 0;
     private int speed = 100; // milliseconds per generation
+    private long lastStepNanos = 0;
     private Random rand;
 
     public GameOfLife() {
+        this(DEFAULT_GRID_WIDTH, DEFAULT_GRID_HEIGHT, ENGINE_BIT_PACKED);
+    }
+
+    public GameOfLife(int gridWidth, int gridHeight, String engineName) {
+        this.gridWidth = gridWidth;
+        this.gridHeight = gridHeight;
         setPreferredSize(new Dimension(WIDTH, HEIGHT + 100));
         setBackground(new Color(20, 20, 30));
 
         rand = new Random();
-        grid = new boolean[GRID_HEIGHT][GRID_WIDTH];
-        nextGrid = new boolean[GRID_HEIGHT][GRID_WIDTH];
+        engine = createEngine(engineName, gridWidth, gridHeight);
+        centerView();
 
         timer = new Timer(speed, this);
 
@@ -46,14 +93,68 @@ public class GameOfLife extends JPanel implements ActionListener {
                 }
             }
         });
+
+        // Viewport panning (works while the buttons have focus)
+        bindKey("LEFT", () -> pan(0, -1));
+        bindKey("RIGHT", () -> pan(0, 1));
+        bindKey("UP", () -> pan(-1, 0));
+        bindKey("DOWN", () -> pan(1, 0));
+        bindKey("shift LEFT", () -> pan(0, -viewCols()));
+        bindKey("shift RIGHT", () -> pan(0, viewCols()));
+        bindKey("shift UP", () -> pan(-viewRows(), 0));
+        bindKey("shift DOWN", () -> pan(viewRows(), 0));
+        bindKey("HOME", () -> { centerView(); repaint(); });
+    }
+
+    static LifeEngine createEngine(String name, int width, int height) {
+        switch (name) {
+            case ENGINE_ARRAY: return new ArrayLifeEngine(width, height);
+            case ENGINE_BIT_PACKED: return new BitPackedLifeEngine(width, height);
+            case ENGINE_SPARSE: return new SparseTileLifeEngine(width, height);
+            case ENGINE_HASHLIFE: return new HashLifeEngine(width, height);
+            default: throw new IllegalArgumentException("Unknown engine: " + name);
+        }
+    }
+
+    private void bindKey(String keyStroke, Runnable action) {
+        getInputMap(WHEN_IN_FOCUSED_WINDOW).put(KeyStroke.getKeyStroke(keyStroke), keyStroke);
+        getActionMap().put(keyStroke, new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                action.run();
+            }
+        });
+    }
+
+    private int viewCols() { return Math.min(VIEW_COLS, gridWidth); }
+    private int viewRows() { return Math.min(VIEW_ROWS, gridHeight); }
+
+    private void centerView() {
+        viewRow = (gridHeight - viewRows()) / 2;
+        viewCol = (gridWidth - viewCols()) / 2;
+    }
+
+    private void pan(int dRows, int dCols) {
+        viewRow = Math.floorMod(viewRow + dRows, gridHeight);
+        viewCol = Math.floorMod(viewCol + dCols, gridWidth);
+        repaint();
+    }
+
+    private void switchEngine(String name) {
+        LifeEngine next = createEngine(name, gridWidth, gridHeight);
+        engine.forEachLive((row, col) -> next.set(row, col, true));
+        engine = next;
+        repaint();
     }
 
     private void toggleCell(int x, int y) {
         int col = x / CELL_SIZE;
         int row = y / CELL_SIZE;
 
-        if (row >= 0 && row < GRID_HEIGHT && col >= 0 && col < GRID_WIDTH) {
-            grid[row][col] = !grid[row][col];
+        if (row >= 0 && row < viewRows() && col >= 0 && col < viewCols()) {
+            int r = (viewRow + row) % gridHeight;
+            int c = (viewCol + col) % gridWidth;
+            engine.set(r, c, !engine.get(r, c));
             repaint();
         }
     }
@@ -62,8 +163,8 @@ public class GameOfLife extends JPanel implements ActionListener {
         int col = x / CELL_SIZE;
         int row = y / CELL_SIZE;
 
-        if (row >= 0 && row < GRID_HEIGHT && col >= 0 && col < GRID_WIDTH) {
-            grid[row][col] = true;
+        if (row >= 0 && row < viewRows() && col >= 0 && col < viewCols()) {
+            engine.set((viewRow + row) % gridHeight, (viewCol + col) % gridWidth, true);
             repaint();
         }
     }
@@ -73,18 +174,15 @@ public class GameOfLife extends JPanel implements ActionListener {
         super.paintComponent(g);
         Graphics2D g2d = (Graphics2D) g;
 
-        // Draw grid
-        for (int row = 0; row < GRID_HEIGHT; row++) {
-            for (int col = 0; col < GRID_WIDTH; col++) {
-                if (grid[row][col]) {
-                    // Living cell - vibrant cyan/blue
-                    g2d.setColor(new Color(0, 200, 255));
-                    g2d.fillRect(col * CELL_SIZE, row * CELL_SIZE, CELL_SIZE - 1, CELL_SIZE - 1);
-                } else {
-                    // Dead cell - dark grid
-                    g2d.setColor(new Color(30, 30, 40));
-                    g2d.fillRect(col * CELL_SIZE, row * CELL_SIZE, CELL_SIZE - 1, CELL_SIZE - 1);
-                }
+        // Draw the visible part of the grid only
+        int rows = viewRows();
+        int cols = viewCols();
+        for (int row = 0; row < rows; row++) {
+            int gridRow = (viewRow + row) % gridHeight;
+            for (int col = 0; col < cols; col++) {
+                // Living cell - vibrant cyan/blue, dead cell - dark grid
+                g2d.setColor(engine.get(gridRow, (viewCol + col) % gridWidth) ? ALIVE_COLOR : DEAD_COLOR);
+                g2d.fillRect(col * CELL_SIZE, row * CELL_SIZE, CELL_SIZE - 1, CELL_SIZE - 1);
             }
         }
 
@@ -93,7 +191,7 @@ public class GameOfLife extends JPanel implements ActionListener {
     }
 
     private void drawInfoPanel(Graphics2D g2d) {
-        int panelY = GRID_HEIGHT * CELL_SIZE + 10;
+        int panelY = HEIGHT + 10;
 
         g2d.setColor(Color.WHITE);
         g2d.setFont(new Font("Arial", Font.BOLD, 18));
@@ -103,25 +201,18 @@ public class GameOfLife extends JPanel implements ActionListener {
         g2d.drawString("Generation: " + generation, 10, panelY + 25);
         g2d.drawString("Speed: " + speed + "ms", 150, panelY + 25);
         g2d.drawString("Status: " + (isRunning ? "Running" : "Paused"), 280, panelY + 25);
+        g2d.drawString("Living Cells: " + engine.population(), 400, panelY + 25);
+        g2d.drawString(String.format("Step: %.2f ms", lastStepNanos / 1e6), 600, panelY + 25);
 
-        // Count living cells
-        int alive = countLivingCells();
-        g2d.drawString("Living Cells: " + alive, 400, panelY + 25);
+        g2d.setFont(new Font("Arial", Font.PLAIN, 12));
+        String stats = engine.stats();
+        g2d.drawString("Engine: " + engine.name() + " | Grid: " + gridWidth + " x " + gridHeight
+                + " | View: row " + viewRow + ", col " + viewCol + (stats.isEmpty() ? "" : " | " + stats), 10, panelY + 47);
 
         // Draw instructions
         g2d.setFont(new Font("Arial", Font.PLAIN, 11));
         g2d.setColor(new Color(200, 200, 200));
-        g2d.drawString("Click/Drag to draw cells | Use buttons below to control", 10, panelY + 50);
-    }
-
-    private int countLivingCells() {
-        int count = 0;
-        for (int row = 0; row < GRID_HEIGHT; row++) {
-            for (int col = 0; col < GRID_WIDTH; col++) {
-                if (grid[row][col]) count++;
-            }
-        }
-        return count;
+        g2d.drawString("Click/Drag to draw cells | Arrows pan (Shift = page, Home = center) | Use buttons below to control", 10, panelY + 68);
     }
 
     @Override
@@ -132,123 +223,94 @@ public class GameOfLife extends JPanel implements ActionListener {
         }
     }
 
-    private void nextGeneration() {
-        // Calculate next generation based on Conway's rules
-        for (int row = 0; row < GRID_HEIGHT; row++) {
-            for (int col = 0; col < GRID_WIDTH; col++) {
-                int neighbors = countNeighbors(row, col);
-
-                // Conway's Game of Life Rules:
-                // 1. Any live cell with 2 or 3 neighbors survives
-                // 2. Any dead cell with exactly 3 neighbors becomes alive
-                // 3. All other cells die or stay dead
-
-                if (grid[row][col]) {
-                    // Cell is alive
-                    nextGrid[row][col] = (neighbors == 2 || neighbors == 3);
-                } else {
-                    // Cell is dead
-                    nextGrid[row][col] = (neighbors == 3);
-                }
-            }
-        }
-
-        // Copy next generation to current grid
-        for (int row = 0; row < GRID_HEIGHT; row++) {
-            for (int col = 0; col < GRID_WIDTH; col++) {
-                grid[row][col] = nextGrid[row][col];
-            }
-        }
-
+    void nextGeneration() {
+        long start = System.nanoTime();
+        engine.step();
+        lastStepNanos = System.nanoTime() - start;
         generation++;
     }
 
-    private int countNeighbors(int row, int col) {
-        int count = 0;
-
-        // Check all 8 neighbors
-        for (int i = -1; i <= 1; i++) {
-            for (int j = -1; j <= 1; j++) {
-                if (i == 0 && j == 0) continue; // Skip the cell itself
-
-                int newRow = row + i;
-                int newCol = col + j;
-
-                // Wrap around edges (toroidal topology)
-                if (newRow < 0) newRow = GRID_HEIGHT - 1;
-                if (newRow >= GRID_HEIGHT) newRow = 0;
-                if (newCol < 0) newCol = GRID_WIDTH - 1;
-                if (newCol >= GRID_WIDTH) newCol = 0;
-
-                if (grid[newRow][newCol]) {
-                    count++;
-                }
-            }
-        }
-
-        return count;
+    // Advance 2^k generations in one call (HashLife does this in a single memoized pass)
+    void jumpGenerations(int k) {
+        long start = System.nanoTime();
+        engine.stepPow2(k);
+        lastStepNanos = System.nanoTime() - start;
+        generation += 1L << k;
     }
 
     private void clear() {
-        for (int row = 0; row < GRID_HEIGHT; row++) {
-            for (int col = 0; col < GRID_WIDTH; col++) {
-                grid[row][col] = false;
-            }
-        }
+        engine.clear();
         generation = 0;
         repaint();
     }
 
-    private void randomize() {
-        for (int row = 0; row < GRID_HEIGHT; row++) {
-            for (int col = 0; col < GRID_WIDTH; col++) {
-                grid[row][col] = rand.nextDouble() < 0.3; // 30% chance of being alive
-            }
-        }
+    void randomize() {
+        engine.randomize(rand.nextLong()); // ~30% chance of being alive
         generation = 0;
         repaint();
     }
 
-    private void loadPattern(String pattern) {
+    // Pattern files (.rle / .mc, optionally .gz) are centered on the middle of the grid
+    void loadFile(Path path) throws IOException {
+        engine.clear();
+        generation = 0;
+        try {
+            PatternIO.load(path, engine);
+        } finally {
+            centerView();
+            repaint();
+        }
+    }
+
+    void saveFile(Path path) throws IOException {
+        PatternIO.save(path, engine);
+    }
+
+    // Patterns are stamped around the middle of the viewport and wrap around the torus
+    private void setAlive(int row, int col) {
+        engine.set(Math.floorMod(row, gridHeight), Math.floorMod(col, gridWidth), true);
+    }
+
+    void loadPattern(String pattern) {
         clear();
-        int centerRow = GRID_HEIGHT / 2;
-        int centerCol = GRID_WIDTH / 2;
+        int centerRow = viewRow + viewRows() / 2;
+        int centerCol = viewCol + viewCols() / 2;
 
         switch (pattern) {
             case "Glider":
                 // Classic glider pattern
-                grid[centerRow][centerCol + 1] = true;
-                grid[centerRow + 1][centerCol + 2] = true;
-                grid[centerRow + 2][centerCol] = true;
-                grid[centerRow + 2][centerCol + 1] = true;
-                grid[centerRow + 2][centerCol + 2] = true;
+                setAlive(centerRow, centerCol + 1);
+                setAlive(centerRow + 1, centerCol + 2);
+                setAlive(centerRow + 2, centerCol);
+                setAlive(centerRow + 2, centerCol + 1);
+                setAlive(centerRow + 2, centerCol + 2);
                 break;
 
             case "Blinker":
                 // Oscillator with period 2
-                grid[centerRow][centerCol - 1] = true;
-                grid[centerRow][centerCol] = true;
-                grid[centerRow][centerCol + 1] = true;
+                setAlive(centerRow, centerCol - 1);
+                setAlive(centerRow, centerCol);
+                setAlive(centerRow, centerCol + 1);
                 break;
 
             case "Toad":
                 // Oscillator with period 2
-                grid[centerRow][centerCol] = true;
-                grid[centerRow][centerCol + 1] = true;
-                grid[centerRow][centerCol + 2] = true;
-                grid[centerRow + 1][centerCol - 1] = true;
-                grid[centerRow + 1][centerCol] = true;
-                grid[centerRow + 1][centerCol + 1] = true;
+                setAlive(centerRow, centerCol);
+                setAlive(centerRow, centerCol + 1);
+                setAlive(centerRow, centerCol + 2);
+                setAlive(centerRow + 1, centerCol - 1);
+                setAlive(centerRow + 1, centerCol);
+                setAlive(centerRow + 1, centerCol + 1);
                 break;
 
             case "Beacon":
                 // Oscillator with period 2
-                grid[centerRow][centerCol] = true;
-                grid[centerRow][centerCol + 1] = true;
-                grid[centerRow + 1][centerCol] = true;
-                grid[centerRow + 2][centerCol + 3] = true;
-                grid[centerRow + 3][centerCol + 2] = true;
-                grid[centerRow + 3][centerCol + 3] = true;
+                setAlive(centerRow, centerCol);
+                setAlive(centerRow, centerCol + 1);
+                setAlive(centerRow + 1, centerCol);
+                setAlive(centerRow + 2, centerCol + 3);
+                setAlive(centerRow + 3, centerCol + 2);
+                setAlive(centerRow + 3, centerCol + 3);
                 break;
 
             case "Pulsar":
@@ -262,7 +324,7 @@ public class GameOfLife extends JPanel implements ActionListener {
                         {0,4},{1,4},{2,4},{6,4},{7,4},{8,4}
                 };
                 for (int[] pos : pulsar) {
-                    grid[centerRow - 4 + pos[0]][centerCol - 4 + pos[1]] = true;
+                    setAlive(centerRow - 4 + pos[0], centerCol - 4 + pos[1]);
                 }
                 break;
 
@@ -277,10 +339,7 @@ public class GameOfLife extends JPanel implements ActionListener {
                         {3,35},{4,35},{3,36},{4,36} // Right square
                 };
                 for (int[] pos : gun) {
-                    if (centerRow - 20 + pos[0] >= 0 && centerRow - 20 + pos[0] < GRID_HEIGHT &&
-                            centerCol - 20 + pos[1] >= 0 && centerCol - 20 + pos[1] < GRID_WIDTH) {
-                        grid[centerRow - 20 + pos[0]][centerCol - 20 + pos[1]] = true;
-                    }
+                    setAlive(centerRow - 20 + pos[0], centerCol - 20 + pos[1]);
                 }
                 break;
         }
@@ -288,10 +347,1571 @@ public class GameOfLife extends JPanel implements ActionListener {
         repaint();
     }
 
+    // ==========================================
+    // ENGINES
+    // ==========================================
+
+    /**
+     * Conway's rule on 64 cells at once. Each argument is a bit plane aligned with the cells:
+     * a = row above, m = same row, b = row below; 0 = west, 1 = center, 2 = east.
+     */
+    static long evolve(long a0, long a1, long a2, long m0, long self, long m2, long b0, long b1, long b2) {
+        // Full adders on the rows above and below, half adder on the middle row
+        long sA = a0 ^ a1 ^ a2, cA = (a0 & a1) | (a2 & (a0 ^ a1));
+        long sB = b0 ^ b1 ^ b2, cB = (b0 & b1) | (b2 & (b0 ^ b1));
+        long sM = m0 ^ m2,      cM = m0 & m2;
+
+        // Ones column
+        long ones = sA ^ sB ^ sM;
+        long c1 = (sA & sB) | (sM & (sA ^ sB));
+        // Twos column: cA + cB + cM + c1
+        long t = cA ^ cB ^ cM;
+        long c2 = (cA & cB) | (cM & (cA ^ cB));
+        long twos = t ^ c1;
+        long c3 = t & c1;
+        // Fours column (8 neighbors wraps to 0, which is dead anyway)
+        long fours = c2 ^ c3;
+
+        // Alive next: exactly 3, or exactly 2 and alive now
+        return twos & ~fours & (ones | self);
+    }
+
+    interface CellVisitor {
+        void visit(int row, int col);
+    }
+
+    /**
+     * A toroidal Life board. Rows wrap top/bottom, columns wrap left/right.
+     */
+    interface LifeEngine {
+        String name();
+        int width();
+        int height();
+        boolean get(int row, int col);
+        void set(int row, int col, boolean alive);
+        void clear();
+        void randomize(long seed);   // ~30% density
+        void step();                 // Advance one generation
+        long population();
+        void forEachLive(CellVisitor visitor);   // Row-major, columns ascending within a row
+
+        // Largest k accepted by stepPow2
+        default int maxStepLog2() { return 10; }
+
+        default void stepPow2(int k) {
+            for (long i = 0; i < (1L << k); i++) step();
+        }
+
+        // Engine specific counters for the info panel
+        default String stats() { return ""; }
+    }
+
+    /**
+     * Reference engine: one boolean per cell, eight wrapped neighbor lookups per cell.
+     */
+    static class ArrayLifeEngine implements LifeEngine {
+        private static final long MAX_CELLS = 1L << 26;
+
+        private final int width, height;
+        private boolean[][] grid;
+        private boolean[][] nextGrid;
+        private long population;
+
+        ArrayLifeEngine(int width, int height) {
+            if ((long) width * height > MAX_CELLS) {
+                throw new IllegalArgumentException("Array engine is limited to " + MAX_CELLS + " cells, use " + ENGINE_BIT_PACKED);
+            }
+            this.width = width;
+            this.height = height;
+            grid = new boolean[height][width];
+            nextGrid = new boolean[height][width];
+        }
+
+        public String name() { return ENGINE_ARRAY; }
+        public int width() { return width; }
+        public int height() { return height; }
+        public boolean get(int row, int col) { return grid[row][col]; }
+        public long population() { return population; }
+
+        public void set(int row, int col, boolean alive) {
+            if (grid[row][col] != alive) population += alive ? 1 : -1;
+            grid[row][col] = alive;
+        }
+
+        public void clear() {
+            for (boolean[] row : grid) Arrays.fill(row, false);
+            population = 0;
+        }
+
+        public void randomize(long seed) {
+            Random r = new Random(seed);
+            population = 0;
+            for (int row = 0; row < height; row++) {
+                for (int col = 0; col < width; col++) {
+                    grid[row][col] = r.nextDouble() < 0.3;
+                    if (grid[row][col]) population++;
+                }
+            }
+        }
+
+        public void step() {
+            long count = 0;
+            // Calculate next generation based on Conway's rules
+            for (int row = 0; row < height; row++) {
+                for (int col = 0; col < width; col++) {
+                    int neighbors = countNeighbors(row, col);
+
+                    // Conway's Game of Life Rules:
+                    // 1. Any live cell with 2 or 3 neighbors survives
+                    // 2. Any dead cell with exactly 3 neighbors becomes alive
+                    // 3. All other cells die or stay dead
+                    boolean alive = grid[row][col] ? (neighbors == 2 || neighbors == 3) : neighbors == 3;
+                    nextGrid[row][col] = alive;
+                    if (alive) count++;
+                }
+            }
+
+            // Swap buffers instead of copying
+            boolean[][] tmp = grid;
+            grid = nextGrid;
+            nextGrid = tmp;
+            population = count;
+        }
+
+        private int countNeighbors(int row, int col) {
+            int count = 0;
+
+            // Check all 8 neighbors
+            for (int i = -1; i <= 1; i++) {
+                for (int j = -1; j <= 1; j++) {
+                    if (i == 0 && j == 0) continue; // Skip the cell itself
+
+                    int newRow = row + i;
+                    int newCol = col + j;
+
+                    // Wrap around edges (toroidal topology)
+                    if (newRow < 0) newRow = height - 1;
+                    if (newRow >= height) newRow = 0;
+                    if (newCol < 0) newCol = width - 1;
+                    if (newCol >= width) newCol = 0;
+
+                    if (grid[newRow][newCol]) {
+                        count++;
+                    }
+                }
+            }
+
+            return count;
+        }
+
+        public void forEachLive(CellVisitor visitor) {
+            for (int row = 0; row < height; row++) {
+                for (int col = 0; col < width; col++) {
+                    if (grid[row][col]) visitor.visit(row, col);
+                }
+            }
+        }
+    }
+
+    /**
+     * 64 cells per long (bit j of word k in a row is column 64k + j).
+     *
+     * Each word's eight neighbor words (shifted copies of the rows above, at and below)
+     * are summed with bit-parallel full adders, so one pass computes 64 cells.
+     * Row stripes are split across the common ForkJoin pool and the two buffers are swapped
+     * after every generation. Bits past the last column are kept at zero.
+     */
+    static class BitPackedLifeEngine implements LifeEngine {
+        private static final int LEAF_WORDS = 1 << 14; // Stop splitting below ~16K words per task
+
+        private final int width, height;
+        private final int wordsPerRow;
+        private final int tailBits;   // Columns used in the last word of a row (1..64)
+        private final long tailMask;
+        private long[] cells;
+        private long[] next;
+        private long population;
+
+        BitPackedLifeEngine(int width, int height) {
+            if (width <= 0 || height <= 0) throw new IllegalArgumentException("Grid must be at least 1 x 1");
+            this.width = width;
+            this.height = height;
+            this.wordsPerRow = (width + 63) >>> 6;
+            long words = (long) wordsPerRow * height;
+            if (words > Integer.MAX_VALUE - 8) {
+                throw new IllegalArgumentException("Grid too large: " + width + " x " + height);
+            }
+            this.tailBits = width - (wordsPerRow - 1) * 64;
+            this.tailMask = tailBits == 64 ? -1L : (1L << tailBits) - 1;
+            cells = new long[(int) words];
+            next = new long[(int) words];
+        }
+
+        public String name() { return ENGINE_BIT_PACKED; }
+        public int width() { return width; }
+        public int height() { return height; }
+        public long population() { return population; }
+
+        public boolean get(int row, int col) {
+            return (cells[row * wordsPerRow + (col >>> 6)] & (1L << col)) != 0;
+        }
+
+        public void set(int row, int col, boolean alive) {
+            int index = row * wordsPerRow + (col >>> 6);
+            long bit = 1L << col; // Shift distance is taken mod 64
+            boolean was = (cells[index] & bit) != 0;
+            if (was == alive) return;
+            cells[index] ^= bit;
+            population += alive ? 1 : -1;
+        }
+
+        public void clear() {
+            Arrays.fill(cells, 0L);
+            population = 0;
+        }
+
+        public void randomize(long seed) {
+            population = forStripes((from, to) -> {
+                long count = 0;
+                for (int row = from; row < to; row++) {
+                    SplittableRandom r = new SplittableRandom(seed ^ (row * 0x9E3779B97F4A7C15L));
+                    int base = row * wordsPerRow;
+                    for (int k = 0; k < wordsPerRow; k++) {
+                        // P = 1/2 * (1/2 + 1/8) = 5/16 ~ 0.31 per bit
+                        long w = r.nextLong() & (r.nextLong() | (r.nextLong() & r.nextLong()));
+                        if (k == wordsPerRow - 1) w &= tailMask;
+                        cells[base + k] = w;
+                        count += Long.bitCount(w);
+                    }
+                }
+                return count;
+            });
+        }
+
+        public void step() {
+            population = forStripes(this::stepRows);
+            long[] tmp = cells;
+            cells = next;
+            next = tmp;
+        }
+
+        private long stepRows(int from, int to) {
+            final long[] src = cells;
+            final long[] dst = next;
+            final int nw = wordsPerRow;
+            long count = 0;
+
+            for (int row = from; row < to; row++) {
+                int up = (row == 0 ? height - 1 : row - 1) * nw;
+                int mid = row * nw;
+                int down = (row == height - 1 ? 0 : row + 1) * nw;
+
+                for (int k = 0; k < nw; k++) {
+                    long self = src[mid + k];
+
+                    // The 8 neighbor planes, aligned with this word
+                    long a0 = west(src, up, k), a1 = src[up + k], a2 = east(src, up, k);
+                    long m0 = west(src, mid, k), m2 = east(src, mid, k);
+                    long b0 = west(src, down, k), b1 = src[down + k], b2 = east(src, down, k);
+
+                    long result = evolve(a0, a1, a2, m0, self, m2, b0, b1, b2);
+                    if (k == nw - 1) result &= tailMask;
+                    dst[mid + k] = result;
+                    count += Long.bitCount(result);
+                }
+            }
+            return count;
+        }
+
+        // Neighbor to the west of every bit: shift left, carry in the previous column
+        private long west(long[] c, int base, int k) {
+            long carry = k == 0
+                    ? (c[base + wordsPerRow - 1] >>> (tailBits - 1)) & 1L
+                    : c[base + k - 1] >>> 63;
+            return (c[base + k] << 1) | carry;
+        }
+
+        // Neighbor to the east of every bit: shift right, carry in the next column
+        private long east(long[] c, int base, int k) {
+            long carry = k == wordsPerRow - 1
+                    ? (c[base] & 1L) << (tailBits - 1)
+                    : c[base + k + 1] << 63;
+            return (c[base + k] >>> 1) | carry;
+        }
+
+        public void forEachLive(CellVisitor visitor) {
+            for (int row = 0; row < height; row++) {
+                int base = row * wordsPerRow;
+                for (int k = 0; k < wordsPerRow; k++) {
+                    long w = cells[base + k];
+                    while (w != 0) {
+                        visitor.visit(row, (k << 6) + Long.numberOfTrailingZeros(w));
+                        w &= w - 1;
+                    }
+                }
+            }
+        }
+
+        interface StripeOp {
+            long run(int fromRow, int toRow);
+        }
+
+        private long forStripes(StripeOp op) {
+            return ForkJoinPool.commonPool().invoke(new StripeTask(op, 0, height));
+        }
+
+        private class StripeTask extends RecursiveTask<Long> {
+            private final StripeOp op;
+            private final int from, to;
+
+            StripeTask(StripeOp op, int from, int to) {
+                this.op = op; this.from = from; this.to = to;
+            }
+
+            @Override
+            protected Long compute() {
+                if (to - from == 1 || (long) (to - from) * wordsPerRow <= LEAF_WORDS) {
+                    return op.run(from, to);
+                }
+                int mid = (from + to) >>> 1;
+                StripeTask top = new StripeTask(op, from, mid);
+                top.fork();
+                long bottom = new StripeTask(op, mid, to).compute();
+                return bottom + top.join();
+            }
+        }
+    }
+
+    /**
+     * Sparse engine: the torus is cut into 32x32 tiles (one int per tile row) that are only
+     * allocated while they hold live cells. A tile can only change if it or one of its eight
+     * neighbors changed in the previous generation, so each step recomputes just those tiles
+     * and the cost follows the activity of the pattern rather than the area of the grid.
+     */
+    static class SparseTileLifeEngine implements LifeEngine {
+        static final int TILE = 32;
+
+        private final int width, height;
+        private final int tilesX, tilesY;
+        private final int[][] tiles;      // null = all dead
+        private final int[] activeMark;   // Step number that last queued the tile as active
+        private final int[] dirtyMark;    // Epoch that last queued the tile as changed
+        private int[] dirty = new int[64];
+        private int dirtyCount;
+        private int[] active = new int[64];
+        private int activeCount;
+        private int[] pendingTile = new int[64];
+        private int[][] pendingRows = new int[64][];
+        private int pendingCount;
+        private final ArrayDeque<int[]> pool = new ArrayDeque<>();
+        private final long[] neighborhood = new long[TILE + 2];
+        private int stepNumber, epoch;
+        private long population;
+        private int liveTiles;
+
+        SparseTileLifeEngine(int width, int height) {
+            if (width <= 0 || height <= 0) throw new IllegalArgumentException("Grid must be at least 1 x 1");
+            this.width = width;
+            this.height = height;
+            this.tilesX = (width + TILE - 1) / TILE;
+            this.tilesY = (height + TILE - 1) / TILE;
+            long count = (long) tilesX * tilesY;
+            if (count > Integer.MAX_VALUE - 8) throw new IllegalArgumentException("Grid too large: " + width + " x " + height);
+            tiles = new int[(int) count][];
+            activeMark = new int[(int) count];
+            dirtyMark = new int[(int) count];
+            epoch = 1;
+        }
+
+        public String name() { return ENGINE_SPARSE; }
+        public int width() { return width; }
+        public int height() { return height; }
+        public long population() { return population; }
+
+        public String stats() {
+            return String.format("Tiles: %,d live / %,d active of %,d", liveTiles, activeCount, tiles.length);
+        }
+
+        private int tileWidth(int tx) { return Math.min(TILE, width - tx * TILE); }
+        private int tileHeight(int ty) { return Math.min(TILE, height - ty * TILE); }
+
+        private static int mask(int bits) { return bits == 32 ? -1 : (1 << bits) - 1; }
+
+        public boolean get(int row, int col) {
+            int[] t = tiles[(row / TILE) * tilesX + col / TILE];
+            return t != null && (t[row % TILE] & (1 << (col % TILE))) != 0;
+        }
+
+        private long cellBit(int row, int col) {
+            int[] t = tiles[(row / TILE) * tilesX + col / TILE];
+            return t == null ? 0 : (t[row % TILE] >>> (col % TILE)) & 1L;
+        }
+
+        public void set(int row, int col, boolean alive) {
+            int index = (row / TILE) * tilesX + col / TILE;
+            int[] t = tiles[index];
+            int bit = 1 << (col % TILE);
+            if (t == null) {
+                if (!alive) return;
+                t = tiles[index] = takeRows();
+                liveTiles++;
+            }
+            if (((t[row % TILE] & bit) != 0) == alive) return;
+            t[row % TILE] ^= bit;
+            population += alive ? 1 : -1;
+            markDirty(index);
+            if (!alive && isEmpty(t)) {
+                tiles[index] = null;
+                pool.push(t);
+                liveTiles--;
+            }
+        }
+
+        private static boolean isEmpty(int[] rows) {
+            for (int row : rows) if (row != 0) return false;
+            return true;
+        }
+
+        public void clear() {
+            Arrays.fill(tiles, null);
+            pool.clear();
+            dirtyCount = 0;
+            activeCount = 0;
+            population = 0;
+            liveTiles = 0;
+            epoch++;
+        }
+
+        public void randomize(long seed) {
+            clear();
+            SplittableRandom r = new SplittableRandom(seed);
+            for (int ty = 0; ty < tilesY; ty++) {
+                for (int tx = 0; tx < tilesX; tx++) {
+                    int index = ty * tilesX + tx;
+                    int[] rows = takeRows();
+                    int m = mask(tileWidth(tx));
+                    int bits = 0;
+                    for (int y = 0; y < tileHeight(ty); y++) {
+                        // P = 5/16 ~ 0.31 per bit, same as the bit-packed engine
+                        rows[y] = r.nextInt() & (r.nextInt() | (r.nextInt() & r.nextInt())) & m;
+                        bits += Integer.bitCount(rows[y]);
+                    }
+                    if (bits == 0) {
+                        pool.push(rows);
+                        continue;
+                    }
+                    tiles[index] = rows;
+                    liveTiles++;
+                    population += bits;
+                    markDirty(index);
+                }
+            }
+        }
+
+        private void markDirty(int index) {
+            if (dirtyMark[index] == epoch) return;
+            dirtyMark[index] = epoch;
+            if (dirtyCount == dirty.length) dirty = Arrays.copyOf(dirty, dirtyCount * 2);
+            dirty[dirtyCount++] = index;
+        }
+
+        private void markActive(int index) {
+            if (activeMark[index] == stepNumber) return;
+            activeMark[index] = stepNumber;
+            if (activeCount == active.length) active = Arrays.copyOf(active, activeCount * 2);
+            active[activeCount++] = index;
+        }
+
+        private int[] takeRows() {
+            int[] rows = pool.poll();
+            if (rows == null) return new int[TILE];
+            Arrays.fill(rows, 0);
+            return rows;
+        }
+
+        public void step() {
+            // 1. Active = tiles changed last generation plus their neighbors
+            stepNumber++;
+            activeCount = 0;
+            for (int i = 0; i < dirtyCount; i++) {
+                int tx = dirty[i] % tilesX, ty = dirty[i] / tilesX;
+                for (int dy = -1; dy <= 1; dy++) {
+                    int ny = Math.floorMod(ty + dy, tilesY);
+                    for (int dx = -1; dx <= 1; dx++) {
+                        markActive(ny * tilesX + Math.floorMod(tx + dx, tilesX));
+                    }
+                }
+            }
+
+            // 2. Compute every active tile against the current generation
+            pendingCount = 0;
+            for (int i = 0; i < activeCount; i++) {
+                int index = active[i];
+                int[] next = takeRows();
+                if (computeTile(index, next)) {
+                    if (pendingCount == pendingTile.length) {
+                        pendingTile = Arrays.copyOf(pendingTile, pendingCount * 2);
+                        pendingRows = Arrays.copyOf(pendingRows, pendingCount * 2);
+                    }
+                    pendingTile[pendingCount] = index;
+                    pendingRows[pendingCount++] = next;
+                } else {
+                    pool.push(next);
+                }
+            }
+
+            // 3. Commit changed tiles; they are the dirty set of the next generation
+            epoch++;
+            dirtyCount = 0;
+            for (int i = 0; i < pendingCount; i++) {
+                int index = pendingTile[i];
+                int[] next = pendingRows[i];
+                pendingRows[i] = null;
+                int[] old = tiles[index];
+                int bits = 0;
+                for (int row : next) bits += Integer.bitCount(row);
+                if (old != null) {
+                    for (int row : old) population -= Integer.bitCount(row);
+                    pool.push(old);
+                    liveTiles--;
+                }
+                if (bits == 0) {
+                    tiles[index] = null;
+                    pool.push(next);
+                } else {
+                    tiles[index] = next;
+                    population += bits;
+                    liveTiles++;
+                }
+                markDirty(index);
+            }
+        }
+
+        // Returns true when the tile's next state differs from its current one
+        private boolean computeTile(int index, int[] next) {
+            int tx = index % tilesX, ty = index / tilesX;
+            int x0 = tx * TILE, y0 = ty * TILE;
+            int tw = tileWidth(tx), th = tileHeight(ty);
+            int m = mask(tw);
+            int westCol = Math.floorMod(x0 - 1, width);
+            int eastCol = (x0 + tw) % width;
+
+            // Rows y0-1 .. y0+th as (th+2) x (tw+2) bit rows, bit 0 = west border column
+            long[] nb = neighborhood;
+            for (int r = 0; r < th + 2; r++) {
+                int gy = Math.floorMod(y0 + r - 1, height);
+                int[] t = tiles[(gy / TILE) * tilesX + tx];
+                long rowBits = t == null ? 0 : (t[gy % TILE] & m) & 0xFFFFFFFFL;
+                nb[r] = cellBit(gy, westCol) | (rowBits << 1) | (cellBit(gy, eastCol) << (tw + 1));
+            }
+
+            int[] current = tiles[index];
+            boolean changed = false;
+            for (int r = 1; r <= th; r++) {
+                long a = nb[r - 1], c = nb[r], b = nb[r + 1];
+                long result = evolve(a << 1, a, a >>> 1, c << 1, c, c >>> 1, b << 1, b, b >>> 1);
+                int row = (int) (result >>> 1) & m;
+                next[r - 1] = row;
+                if (row != (current == null ? 0 : current[r - 1])) changed = true;
+            }
+            return changed;
+        }
+
+        public void forEachLive(CellVisitor visitor) {
+            for (int ty = 0; ty < tilesY; ty++) {
+                for (int r = 0; r < tileHeight(ty); r++) {
+                    for (int tx = 0; tx < tilesX; tx++) {
+                        int[] t = tiles[ty * tilesX + tx];
+                        if (t == null) continue;
+                        int w = t[r];
+                        while (w != 0) {
+                            visitor.visit(ty * TILE + r, tx * TILE + Integer.numberOfTrailingZeros(w));
+                            w &= w - 1;
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * HashLife (Gosper): the pattern is a quadtree of canonical, immutable nodes, and every
+     * node of level L memoizes its center of size 2^(L-1) advanced 2^min(k, L-2) generations.
+     * Repeated structure in space and time is then computed once, so stepPow2(k) costs about
+     * the same for k = 10 as for k = 50.
+     *
+     * The universe is an unbounded plane rather than a torus: the grid is a window onto it,
+     * centered on the origin, and cells that leave the window keep evolving off screen.
+     *
+     * The node cache is bounded: before each step and after each set(), if it holds more than
+     * maxNodes nodes, every node not reachable from the current pattern is dropped (generation-based
+     * sweep) along with memoized results that point at dropped nodes. The bound is soft. When the
+     * live pattern alone needs more than maxNodes, the next sweep waits until the table has doubled,
+     * and a single stepPow2 can grow the table by any amount until the next sweep.
+     */
+    static class HashLifeEngine implements LifeEngine {
+        static final int MAX_STEP_LOG2 = 56;
+        private static final int DEFAULT_MAX_NODES = 1 << 21;
+        private static final int MAX_LEVEL = 62; // Keeps every coordinate inside a long
+
+        static final class Node {
+            final Node nw, ne, sw, se;
+            final int level;
+            final long population;
+            final int id;
+            int hash;
+            Node next;     // Hash chain
+            Node result;   // Memoized center after 2^min(memoStep, level - 2) generations
+            int mark;      // Last sweep that reached this node
+
+            Node(Node nw, Node ne, Node sw, Node se, int id) {
+                this.nw = nw; this.ne = ne; this.sw = sw; this.se = se;
+                this.level = nw.level + 1;
+                this.population = nw.population + ne.population + sw.population + se.population;
+                this.id = id;
+            }
+
+            Node(boolean alive) {
+                nw = ne = sw = se = null;
+                level = 0;
+                population = alive ? 1 : 0;
+                id = alive ? 1 : 0;
+            }
+        }
+
+        private static final Node DEAD = new Node(false);
+        private static final Node ALIVE = new Node(true);
+
+        private final int width, height;
+        private final int maxNodes;
+        private Node[] buckets;
+        private int size;
+        private int nextId;
+        private Node[] emptyNodes;
+        private Node root;
+        private int collectAt;
+        private int memoStep;
+        private int sweep;
+        private long joinHits, joinMisses, memoHits, memoMisses;
+
+        HashLifeEngine(int width, int height) {
+            this(width, height, DEFAULT_MAX_NODES);
+        }
+
+        HashLifeEngine(int width, int height, int maxNodes) {
+            this.width = width;
+            this.height = height;
+            this.maxNodes = maxNodes;
+            clear();
+        }
+
+        public String name() { return ENGINE_HASHLIFE; }
+        public int width() { return width; }
+        public int height() { return height; }
+        public long population() { return root.population; }
+        public int maxStepLog2() { return MAX_STEP_LOG2; }
+
+        public void clear() {
+            buckets = new Node[1 << 16];
+            size = 0;
+            nextId = 2;
+            emptyNodes = new Node[MAX_LEVEL + 2];
+            emptyNodes[0] = DEAD;
+            collectAt = maxNodes;
+            memoStep = 0;
+            joinHits = joinMisses = memoHits = memoMisses = 0;
+            root = empty(3);
+        }
+
+        public String stats() {
+            return String.format("Nodes: %,d / %,d | Cache hit: %.1f%% | Memo hit: %.1f%%",
+                    size, maxNodes, percent(joinHits, joinMisses), percent(memoHits, memoMisses));
+        }
+
+        private static double percent(long hits, long misses) {
+            long total = hits + misses;
+            return total == 0 ? 0 : 100.0 * hits / total;
+        }
+
+        // ---------- Canonical node table ----------
+
+        private Node join(Node nw, Node ne, Node sw, Node se) {
+            int h = nw.id;
+            h = h * 0x9E3779B1 + ne.id;
+            h = h * 0x9E3779B1 + sw.id;
+            h = h * 0x9E3779B1 + se.id;
+            h ^= h >>> 16;
+
+            int index = h & (buckets.length - 1);
+            for (Node n = buckets[index]; n != null; n = n.next) {
+                if (n.nw == nw && n.ne == ne && n.sw == sw && n.se == se) {
+                    joinHits++;
+                    return n;
+                }
+            }
+            joinMisses++;
+
+            Node n = new Node(nw, ne, sw, se, nextId++);
+            n.hash = h;
+            n.next = buckets[index];
+            buckets[index] = n;
+            if (++size > buckets.length - (buckets.length >>> 2)) resize(buckets.length << 1);
+            return n;
+        }
+
+        private void resize(int capacity) {
+            Node[] old = buckets;
+            buckets = new Node[capacity];
+            for (Node head : old) {
+                for (Node n = head; n != null; ) {
+                    Node following = n.next;
+                    int index = n.hash & (capacity - 1);
+                    n.next = buckets[index];
+                    buckets[index] = n;
+                    n = following;
+                }
+            }
+        }
+
+        private Node empty(int level) {
+            if (emptyNodes[level] == null) {
+                Node e = empty(level - 1);
+                emptyNodes[level] = join(e, e, e, e);
+            }
+            return emptyNodes[level];
+        }
+
+        // Drop everything the current pattern does not reference
+        private void collect() {
+            sweep++;
+            markTree(root);
+            for (Node e : emptyNodes) if (e != null) markTree(e);
+
+            Node[] old = buckets;
+            int capacity = old.length;
+            while (capacity > (1 << 16) && size < capacity >>> 3) capacity >>>= 1;
+            buckets = new Node[capacity];
+            size = 0;
+            for (Node head : old) {
+                for (Node n = head; n != null; ) {
+                    Node following = n.next;
+                    if (n.mark == sweep) {
+                        if (n.result != null && n.result.mark != sweep) n.result = null;
+                        int index = n.hash & (capacity - 1);
+                        n.next = buckets[index];
+                        buckets[index] = n;
+                        size++;
+                    }
+                    n = following;
+                }
+            }
+        }
+
+        // Sweep once past maxNodes; a sweep that keeps more than that waits until the table has doubled
+        private void collectIfFull() {
+            if (size <= collectAt) return;
+            collect();
+            collectAt = Math.max(maxNodes, 2 * size);
+        }
+
+        private void markTree(Node n) {
+            if (n.level == 0 || n.mark == sweep) return;
+            n.mark = sweep;
+            markTree(n.nw); markTree(n.ne); markTree(n.sw); markTree(n.se);
+        }
+
+        private void clearResults() {
+            for (Node head : buckets) {
+                for (Node n = head; n != null; n = n.next) n.result = null;
+            }
+        }
+
+        // ---------- Geometry ----------
+
+        // root spans [-2^(L-1), 2^(L-1)) on both axes; grid (row, col) maps to (col - width/2, row - height/2)
+        private long half() { return 1L << (root.level - 1); }
+
+        private Node centre(Node n) {
+            return join(n.nw.se, n.ne.sw, n.sw.ne, n.se.nw);
+        }
+
+        private Node expand(Node n) {
+            if (n.level >= MAX_LEVEL) throw new IllegalStateException("Pattern has outgrown the 2^" + MAX_LEVEL + " universe");
+            Node e = empty(n.level - 1);
+            return join(join(e, e, e, n.nw), join(e, e, n.ne, e),
+                        join(e, n.sw, e, e), join(n.se, e, e, e));
+        }
+
+        // True when all live cells sit in the central quarter (the four innermost great-grandchildren)
+        private static boolean padded(Node n) {
+            return n.level >= 3
+                    && n.nw.population == n.nw.se.se.population
+                    && n.ne.population == n.ne.sw.sw.population
+                    && n.sw.population == n.sw.ne.ne.population
+                    && n.se.population == n.se.nw.nw.population;
+        }
+
+        public boolean get(int row, int col) {
+            long x = col - width / 2 + half();
+            long y = row - height / 2 + half();
+            long side = half() << 1;
+            if (x < 0 || y < 0 || x >= side || y >= side) return false;
+
+            Node n = root;
+            while (n.level > 0) {
+                if (n.population == 0) return false;
+                long h = 1L << (n.level - 1);
+                if (y < h) {
+                    if (x < h) n = n.nw; else { n = n.ne; x -= h; }
+                } else {
+                    y -= h;
+                    if (x < h) n = n.sw; else { n = n.se; x -= h; }
+                }
+            }
+            return n == ALIVE;
+        }
+
+        public void set(int row, int col, boolean alive) {
+            long ux = col - width / 2;
+            long uy = row - height / 2;
+            while (ux < -half() || uy < -half() || ux >= half() || uy >= half()) root = expand(root);
+            root = setCell(root, ux + half(), uy + half(), alive);
+            // Each edit interns a new path to the root, so bulk edits must sweep as they go
+            collectIfFull();
+        }
+
+        private Node setCell(Node n, long x, long y, boolean alive) {
+            if (n.level == 0) return alive ? ALIVE : DEAD;
+            long h = 1L << (n.level - 1);
+            if (y < h) {
+                if (x < h) return join(setCell(n.nw, x, y, alive), n.ne, n.sw, n.se);
+                return join(n.nw, setCell(n.ne, x - h, y, alive), n.sw, n.se);
+            }
+            if (x < h) return join(n.nw, n.ne, setCell(n.sw, x, y - h, alive), n.se);
+            return join(n.nw, n.ne, n.sw, setCell(n.se, x - h, y - h, alive));
+        }
+
+        public void randomize(long seed) {
+            clear();
+            int level = 3;
+            while ((1L << (level - 1)) < Math.max(width, height)) level++;
+            root = build(level, -(1L << (level - 1)), -(1L << (level - 1)), new SplittableRandom(seed));
+        }
+
+        // Random soup inside the grid window, empty outside it
+        private Node build(int level, long x0, long y0, SplittableRandom r) {
+            long side = 1L << level;
+            long minX = -(width / 2), minY = -(height / 2);
+            if (x0 >= minX + width || y0 >= minY + height || x0 + side <= minX || y0 + side <= minY) return empty(level);
+            if (level == 0) return r.nextDouble() < 0.3 ? ALIVE : DEAD;
+            long h = side >>> 1;
+            return join(build(level - 1, x0, y0, r), build(level - 1, x0 + h, y0, r),
+                        build(level - 1, x0, y0 + h, r), build(level - 1, x0 + h, y0 + h, r));
+        }
+
+        interface PlaneVisitor {
+            void visit(long x, long y);
+        }
+
+        public void forEachLive(CellVisitor visitor) {
+            long minX = -(width / 2), minY = -(height / 2);
+            visitPlane(minX, minY, minX + width, minY + height, (x, y) -> visitor.visit((int) (y - minY), (int) (x - minX)));
+        }
+
+        // Every live cell of the plane in universe coordinates, row-major
+        void forEachLiveInPlane(PlaneVisitor visitor) {
+            visitPlane(-half(), -half(), half(), half(), visitor);
+        }
+
+        // Live cells in [minX, maxX) x [minY, maxY), row-major, jumping over empty rows
+        private void visitPlane(long minX, long minY, long maxX, long maxY, PlaneVisitor visitor) {
+            long to = Math.min(maxY, half());
+            for (long y = nextLiveRow(root, -half(), Math.max(minY, -half())); y < to; y = nextLiveRow(root, -half(), y + 1)) {
+                visitRow(root, -half(), -half(), y, minX, maxX, visitor);
+            }
+        }
+
+        // First row >= y holding a live cell of n (top edge y0), or Long.MAX_VALUE
+        private static long nextLiveRow(Node n, long y0, long y) {
+            long side = 1L << n.level;
+            if (n.population == 0 || y0 + side <= y) return Long.MAX_VALUE;
+            if (n.level == 0) return y0;
+            long h = side >>> 1;
+            long top = Math.min(nextLiveRow(n.nw, y0, y), nextLiveRow(n.ne, y0, y));
+            return top != Long.MAX_VALUE ? top : Math.min(nextLiveRow(n.sw, y0 + h, y), nextLiveRow(n.se, y0 + h, y));
+        }
+
+        // One universe row y, west to east, skipping empty subtrees
+        private static void visitRow(Node n, long x0, long y0, long y, long minX, long maxX, PlaneVisitor visitor) {
+            long side = 1L << n.level;
+            if (n.population == 0 || x0 >= maxX || x0 + side <= minX) return;
+            if (n.level == 0) {
+                visitor.visit(x0, y);
+                return;
+            }
+            long h = side >>> 1;
+            if (y < y0 + h) {
+                visitRow(n.nw, x0, y0, y, minX, maxX, visitor);
+                visitRow(n.ne, x0 + h, y0, y, minX, maxX, visitor);
+            } else {
+                visitRow(n.sw, x0, y0 + h, y, minX, maxX, visitor);
+                visitRow(n.se, x0 + h, y0 + h, y, minX, maxX, visitor);
+            }
+        }
+
+        // ---------- Bulk import ----------
+
+        Builder builder() { return new Builder(); }
+
+        /**
+         * Replaces the universe with live cells fed in row-major order (columns ascending within a
+         * row) in universe coordinates. Each finished row is paired with the row below it and the
+         * pair is joined one level up, so, like importTree, only nodes of the final tree are interned.
+         * Nothing changes until finish().
+         */
+        final class Builder {
+            private final Row[] pending = new Row[MAX_LEVEL + 2]; // Per level, the last row not yet paired
+            private Row row;                                      // Level-0 row being filled
+            private long minX = Long.MAX_VALUE, minY = Long.MAX_VALUE, maxX = Long.MIN_VALUE, maxY = Long.MIN_VALUE;
+
+            void cell(long x, long y) {
+                long limit = 1L << (MAX_LEVEL - 1);
+                if (x < -limit || y < -limit || x >= limit || y >= limit) {
+                    throw new IllegalStateException("Pattern has outgrown the 2^" + MAX_LEVEL + " universe");
+                }
+                if (row == null || y != row.index) {
+                    if (row != null && y < row.index) throw new IllegalArgumentException("Cells must arrive in row-major order");
+                    if (row != null) push(0, row);
+                    row = new Row(y);
+                } else if (x <= row.cols[row.size - 1]) {
+                    throw new IllegalArgumentException("Cells must arrive in row-major order");
+                }
+                row.add(x, ALIVE);
+                minX = Math.min(minX, x); maxX = Math.max(maxX, x);
+                minY = Math.min(minY, y); maxY = Math.max(maxY, y);
+            }
+
+            void finish() {
+                if (row != null) push(0, row);
+                row = null;
+
+                // Smallest centered root holding every cell, then join everything below its quadrants
+                int level = 3;
+                while (minX < -(1L << (level - 1)) || minY < -(1L << (level - 1))
+                        || maxX >= 1L << (level - 1) || maxY >= 1L << (level - 1)) level++;
+                int q = level - 1;
+                for (int l = 0; l < q; l++) {
+                    Row p = pending[l];
+                    if (p == null) continue;
+                    pending[l] = null;
+                    push(l + 1, (p.index & 1) == 0 ? pair(p, null, l) : pair(null, p, l));
+                }
+                root = join(quadrant(-1, -1, q), quadrant(0, -1, q), quadrant(-1, 0, q), quadrant(0, 0, q));
+            }
+
+            // Pair r with the pending row above it, or retire the pending row alone if r starts a new pair
+            private void push(int level, Row r) {
+                Row p = pending[level];
+                if (p != null && p.index >> 1 == r.index >> 1) {
+                    pending[level] = null;
+                    push(level + 1, pair(p, r, level));
+                    return;
+                }
+                if (p != null) push(level + 1, (p.index & 1) == 0 ? pair(p, null, level) : pair(null, p, level));
+                pending[level] = r;
+            }
+
+            // Join two vertically adjacent rows (either may be null) into the row one level up
+            private Row pair(Row top, Row bottom, int level) {
+                Row up = new Row((top != null ? top : bottom).index >> 1);
+                int tn = top == null ? 0 : top.size, bn = bottom == null ? 0 : bottom.size;
+                Node e = empty(level);
+                int i = 0, j = 0;
+                while (i < tn || j < bn) {
+                    long col = Math.min(i < tn ? top.cols[i] >> 1 : Long.MAX_VALUE, j < bn ? bottom.cols[j] >> 1 : Long.MAX_VALUE);
+                    Node nw = e, ne = e, sw = e, se = e;
+                    for (; i < tn && top.cols[i] >> 1 == col; i++) {
+                        if ((top.cols[i] & 1) == 0) nw = top.nodes[i]; else ne = top.nodes[i];
+                    }
+                    for (; j < bn && bottom.cols[j] >> 1 == col; j++) {
+                        if ((bottom.cols[j] & 1) == 0) sw = bottom.nodes[j]; else se = bottom.nodes[j];
+                    }
+                    up.add(col, join(nw, ne, sw, se));
+                }
+                return up;
+            }
+
+            // Level-q node at (col, index); each region lives in exactly one pending row at or above q
+            private Node quadrant(long col, long index, int q) {
+                for (int l = q; l < pending.length; l++) {
+                    Row p = pending[l];
+                    int shift = l - q;
+                    if (p == null || p.index != index >> shift) continue;
+                    for (int i = 0; i < p.size; i++) {
+                        if (p.cols[i] != col >> shift) continue;
+                        Node n = p.nodes[i];
+                        for (int s = shift - 1; s >= 0; s--) {
+                            boolean south = ((index >> s) & 1) != 0, east = ((col >> s) & 1) != 0;
+                            n = south ? (east ? n.se : n.sw) : (east ? n.ne : n.nw);
+                        }
+                        return n;
+                    }
+                    break;
+                }
+                return empty(q);
+            }
+        }
+
+        // Nonempty nodes of one level sharing a row index, ascending by column
+        private static final class Row {
+            final long index;
+            long[] cols = new long[16];
+            Node[] nodes = new Node[16];
+            int size;
+
+            Row(long index) { this.index = index; }
+
+            void add(long col, Node n) {
+                if (size == cols.length) {
+                    cols = Arrays.copyOf(cols, size * 2);
+                    nodes = Arrays.copyOf(nodes, size * 2);
+                }
+                cols[size] = col;
+                nodes[size++] = n;
+            }
+        }
+
+        // ---------- Macrocell import / export ----------
+
+        // Replace the universe with a parsed macrocell tree, building canonical nodes directly
+        void importTree(PatternIO.MacroTree tree) throws IOException {
+            if (tree.rootLevel() > MAX_LEVEL) throw new IOException("Macrocell root level too large: " + tree.rootLevel());
+            Node[] built = new Node[tree.size];
+            for (int i = 0; i < tree.size; i++) {
+                int lvl = tree.level[i];
+                if (lvl == 3) {
+                    built[i] = fromLeafBits(tree.leaf[i], 3, 0, 0);
+                } else {
+                    Node[] q = new Node[4];
+                    for (int k = 0; k < 4; k++) {
+                        int child = tree.children[i * 4 + k];
+                        if (lvl == 1) q[k] = child != 0 ? ALIVE : DEAD;
+                        else if (child == 0) q[k] = empty(lvl - 1);
+                        else q[k] = built[child - 1];
+                        if (q[k].level != lvl - 1) throw new IOException("Macrocell node " + (i + 1) + " has a child of the wrong level");
+                    }
+                    built[i] = join(q[0], q[1], q[2], q[3]);
+                }
+            }
+            Node r = built[tree.size - 1];
+            while (r.level < 3) r = expand(r);
+            root = r;
+        }
+
+        private Node fromLeafBits(long bits, int level, int x, int y) {
+            if (level == 0) return (bits & (1L << (y * 8 + x))) != 0 ? ALIVE : DEAD;
+            int h = 1 << (level - 1);
+            return join(fromLeafBits(bits, level - 1, x, y), fromLeafBits(bits, level - 1, x + h, y),
+                        fromLeafBits(bits, level - 1, x, y + h), fromLeafBits(bits, level - 1, x + h, y + h));
+        }
+
+        // Post-order node lines; every distinct node is written once
+        void exportTree(Writer out) throws IOException {
+            exportNode(root, new IdentityHashMap<>(), out);
+        }
+
+        private int exportNode(Node n, Map<Node, Integer> written, Writer out) throws IOException {
+            if (n.population == 0) return 0;
+            Integer known = written.get(n);
+            if (known != null) return known;
+
+            if (n.level == 3) {
+                StringBuilder sb = new StringBuilder();
+                for (int y = 0; y < 8; y++) {
+                    int end = 0;
+                    for (int x = 0; x < 8; x++) if (cellIn(n, x, y)) end = x + 1;
+                    for (int x = 0; x < end; x++) sb.append(cellIn(n, x, y) ? '*' : '.');
+                    sb.append('$');
+                }
+                out.write(sb.append('\n').toString());
+            } else {
+                int a = exportNode(n.nw, written, out), b = exportNode(n.ne, written, out);
+                int c = exportNode(n.sw, written, out), d = exportNode(n.se, written, out);
+                out.write(n.level + " " + a + " " + b + " " + c + " " + d + "\n");
+            }
+            int index = written.size() + 1;
+            written.put(n, index);
+            return index;
+        }
+
+        private static boolean cellIn(Node n, int x, int y) {
+            while (n.level > 0) {
+                int h = 1 << (n.level - 1);
+                if (y < h) {
+                    if (x < h) n = n.nw; else { n = n.ne; x -= h; }
+                } else {
+                    y -= h;
+                    if (x < h) n = n.sw; else { n = n.se; x -= h; }
+                }
+            }
+            return n == ALIVE;
+        }
+
+        // ---------- Evolution ----------
+
+        public void step() {
+            stepPow2(0);
+        }
+
+        public void stepPow2(int k) {
+            if (k < 0 || k > MAX_STEP_LOG2) throw new IllegalArgumentException("k out of range: " + k);
+            collectIfFull();
+            if (k != memoStep) {
+                clearResults();
+                memoStep = k;
+            }
+
+            // Enough empty margin that nothing can escape the result square in 2^k generations
+            while (root.level < k + 3 || !padded(root)) root = expand(root);
+            root = result(root);
+            while (root.level > 3 && padded(root)) root = centre(root);
+        }
+
+        private Node result(Node n) {
+            if (n.result != null) {
+                memoHits++;
+                return n.result;
+            }
+            memoMisses++;
+
+            Node r;
+            if (n.population == 0) {
+                r = n.nw;
+            } else if (n.level == 2) {
+                r = life4x4(n);
+            } else {
+                // Nine overlapping sub-squares of level L-1
+                Node n00 = n.nw, n02 = n.ne, n20 = n.sw, n22 = n.se;
+                Node n01 = join(n.nw.ne, n.ne.nw, n.nw.se, n.ne.sw);
+                Node n10 = join(n.nw.sw, n.nw.se, n.sw.nw, n.sw.ne);
+                Node n11 = centre(n);
+                Node n12 = join(n.ne.sw, n.ne.se, n.se.nw, n.se.ne);
+                Node n21 = join(n.sw.ne, n.se.nw, n.sw.se, n.se.sw);
+
+                Node c00, c01, c02, c10, c11, c12, c20, c21, c22;
+                if (memoStep >= n.level - 2) {
+                    // Full speed: both halves advance 2^(L-3)
+                    c00 = result(n00); c01 = result(n01); c02 = result(n02);
+                    c10 = result(n10); c11 = result(n11); c12 = result(n12);
+                    c20 = result(n20); c21 = result(n21); c22 = result(n22);
+                } else {
+                    // Smaller step: only the second half advances
+                    c00 = centre(n00); c01 = centre(n01); c02 = centre(n02);
+                    c10 = centre(n10); c11 = centre(n11); c12 = centre(n12);
+                    c20 = centre(n20); c21 = centre(n21); c22 = centre(n22);
+                }
+
+                r = join(result(join(c00, c01, c10, c11)), result(join(c01, c02, c11, c12)),
+                         result(join(c10, c11, c20, c21)), result(join(c11, c12, c21, c22)));
+            }
+            n.result = r;
+            return r;
+        }
+
+        // Base case: 4x4 block -> its center 2x2 one generation later
+        private Node life4x4(Node n) {
+            int bits = 0; // bit (y * 4 + x)
+            Node[] quads = {n.nw, n.ne, n.sw, n.se};
+            for (int q = 0; q < 4; q++) {
+                Node c = quads[q];
+                int ox = (q & 1) * 2, oy = (q >> 1) * 2;
+                if (c.nw == ALIVE) bits |= 1 << ((oy) * 4 + ox);
+                if (c.ne == ALIVE) bits |= 1 << ((oy) * 4 + ox + 1);
+                if (c.sw == ALIVE) bits |= 1 << ((oy + 1) * 4 + ox);
+                if (c.se == ALIVE) bits |= 1 << ((oy + 1) * 4 + ox + 1);
+            }
+            return join(cellAfter(bits, 1, 1), cellAfter(bits, 2, 1),
+                        cellAfter(bits, 1, 2), cellAfter(bits, 2, 2));
+        }
+
+        private static Node cellAfter(int bits, int x, int y) {
+            int neighbors = 0;
+            for (int dy = -1; dy <= 1; dy++) {
+                for (int dx = -1; dx <= 1; dx++) {
+                    if ((dx != 0 || dy != 0) && (bits & (1 << ((y + dy) * 4 + x + dx))) != 0) neighbors++;
+                }
+            }
+            boolean alive = (bits & (1 << (y * 4 + x))) != 0;
+            return (neighbors == 3 || (alive && neighbors == 2)) ? ALIVE : DEAD;
+        }
+    }
+
+    // ==========================================
+    // PATTERN FILES (RLE / Macrocell)
+    // ==========================================
+
+    /**
+     * Streaming readers and writers for the two community pattern formats.
+     * Readers push live cells straight into an engine (nothing the size of the grid is
+     * allocated); writers walk the engine's live cells in row-major order.
+     * Imports are centered on the middle of the grid. HashLife reads and writes the whole plane,
+     * the bounded engines clip both formats to the grid. Only Conway's B3/S23 is accepted.
+     */
+    static class PatternIO {
+        private static final int READ_BUFFER = 1 << 16;
+        private static final int RLE_LINE = 70;
+
+        static Reader open(Path path) throws IOException {
+            InputStream in = new BufferedInputStream(Files.newInputStream(path), READ_BUFFER);
+            if (path.toString().endsWith(".gz")) in = new GZIPInputStream(in, READ_BUFFER);
+            return new InputStreamReader(in, StandardCharsets.US_ASCII);
+        }
+
+        static Writer create(Path path) throws IOException {
+            OutputStream out = new BufferedOutputStream(Files.newOutputStream(path), READ_BUFFER);
+            if (path.toString().endsWith(".gz")) out = new GZIPOutputStream(out, READ_BUFFER);
+            return new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.US_ASCII), READ_BUFFER);
+        }
+
+        static boolean isMacrocell(Path path) {
+            String name = path.getFileName().toString().toLowerCase();
+            return name.endsWith(".mc") || name.endsWith(".mc.gz");
+        }
+
+        static void load(Path path, LifeEngine engine) throws IOException {
+            try (Reader in = open(path)) {
+                if (isMacrocell(path)) readMacrocell(new BufferedReader(in, READ_BUFFER), engine);
+                else readRle(in, engine);
+            }
+        }
+
+        static void save(Path path, LifeEngine engine) throws IOException {
+            try (Writer out = create(path)) {
+                if (isMacrocell(path)) writeMacrocell(engine, out);
+                else writeRle(engine, out);
+            }
+        }
+
+        private static void checkRule(String rule) throws IOException {
+            String r = rule.trim().toUpperCase();
+            if (!r.equals("B3/S23") && !r.equals("23/3")) throw new IOException("Unsupported rule: " + rule);
+        }
+
+        // ---------- RLE ----------
+
+        // Receives runs of live cells in universe coordinates (the grid center is the origin), row-major
+        private interface RunSink {
+            void run(long x, long y, int length);
+        }
+
+        static void readRle(Reader in, LifeEngine engine) throws IOException {
+            if (engine instanceof HashLifeEngine) {
+                // The plane is unbounded: cells keep their universe coordinates
+                HashLifeEngine.Builder builder = ((HashLifeEngine) engine).builder();
+                parseRle(in, (x, y, length) -> {
+                    for (int k = 0; k < length; k++) builder.cell(x + k, y);
+                });
+                builder.finish();
+            } else {
+                long minX = -(engine.width() / 2), minY = -(engine.height() / 2);
+                parseRle(in, (x, y, length) -> {
+                    long from = Math.max(x, minX), to = Math.min(x + length, minX + engine.width());
+                    for (long k = from; k < to; k++) setClipped(engine, k, y, minX, minY);
+                });
+            }
+        }
+
+        private static void parseRle(Reader in, RunSink sink) throws IOException {
+            char[] buf = new char[READ_BUFFER];
+            StringBuilder line = new StringBuilder();
+            boolean lineStart = true, inComment = false, inHeader = false, done = false;
+            long originY = 0, originX = 0, row = 0, col = 0;
+            long count = 0;
+
+            int n;
+            while (!done && (n = in.read(buf)) > 0) {
+                for (int i = 0; i < n && !done; i++) {
+                    char ch = buf[i];
+
+                    if (inComment || inHeader) {
+                        if (ch == '\n' || ch == '\r') {
+                            if (inHeader) {
+                                long[] size = parseRleHeader(line.toString());
+                                originY = -(size[1] / 2);
+                                originX = -(size[0] / 2);
+                                line.setLength(0);
+                            }
+                            inComment = inHeader = false;
+                            lineStart = true;
+                        } else if (inHeader) {
+                            line.append(ch);
+                        }
+                        continue;
+                    }
+                    if (lineStart && ch == '#') { inComment = true; continue; }
+                    if (lineStart && ch == 'x') { inHeader = true; line.append(ch); continue; }
+                    lineStart = ch == '\n' || ch == '\r';
+
+                    if (ch >= '0' && ch <= '9') {
+                        count = count * 10 + (ch - '0');
+                        if (count > 1L << 62) throw new IOException("RLE run count too large");
+                    } else if (ch == 'b' || ch == '.') {
+                        col += Math.max(1, count);
+                        count = 0;
+                    } else if (ch == '$') {
+                        row += Math.max(1, count);
+                        col = 0;
+                        count = 0;
+                    } else if (ch == '!') {
+                        done = true;
+                    } else if (Character.isLetter(ch)) {
+                        // 'o' (any other state letter counts as alive)
+                        if (count > Integer.MAX_VALUE) throw new IOException("RLE run of live cells too long");
+                        int run = (int) Math.max(1, count);
+                        sink.run(originX + col, originY + row, run);
+                        col += run;
+                        count = 0;
+                    } else if (!Character.isWhitespace(ch)) {
+                        throw new IOException("Unexpected character in RLE: '" + ch + "'");
+                    }
+                }
+            }
+        }
+
+        // "x = 3, y = 3, rule = B3/S23" -> {3, 3}
+        private static long[] parseRleHeader(String header) throws IOException {
+            long[] size = new long[2];
+            for (String part : header.split(",")) {
+                String[] kv = part.split("=", 2);
+                if (kv.length != 2) continue;
+                String key = kv[0].trim();
+                String value = kv[1].trim();
+                try {
+                    if (key.equals("x")) size[0] = Long.parseLong(value);
+                    else if (key.equals("y")) size[1] = Long.parseLong(value);
+                    else if (key.equals("rule")) checkRule(value);
+                } catch (NumberFormatException e) {
+                    throw new IOException("Bad RLE header: " + header);
+                }
+            }
+            return size;
+        }
+
+        static void writeRle(LifeEngine engine, Writer out) throws IOException {
+            // Pass 1: bounding box
+            long[] box = {Long.MAX_VALUE, Long.MAX_VALUE, Long.MIN_VALUE, Long.MIN_VALUE}; // minX, minY, maxX, maxY
+            forEachCell(engine, (x, y) -> {
+                box[0] = Math.min(box[0], x);
+                box[1] = Math.min(box[1], y);
+                box[2] = Math.max(box[2], x);
+                box[3] = Math.max(box[3], y);
+            });
+            if (box[2] < box[0]) {
+                out.write("x = 0, y = 0, rule = B3/S23\n!\n");
+                return;
+            }
+            out.write("x = " + (box[2] - box[0] + 1) + ", y = " + (box[3] - box[1] + 1) + ", rule = B3/S23\n");
+
+            // Pass 2: run-length encode, rows arrive in order
+            RleEncoder enc = new RleEncoder(out, box[0], box[1]);
+            try {
+                forEachCell(engine, enc::cell);
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            enc.finish();
+        }
+
+        // Live cells in universe coordinates: the whole plane for HashLife, the grid for the others
+        private static void forEachCell(LifeEngine engine, HashLifeEngine.PlaneVisitor visitor) {
+            if (engine instanceof HashLifeEngine) {
+                ((HashLifeEngine) engine).forEachLiveInPlane(visitor);
+            } else {
+                long minX = -(engine.width() / 2), minY = -(engine.height() / 2);
+                engine.forEachLive((row, col) -> visitor.visit(minX + col, minY + row));
+            }
+        }
+
+        private static class RleEncoder {
+            private final Writer out;
+            private final long minX;
+            private long y, x;           // Next unwritten position
+            private long aliveRun;       // Pending run of 'o' ending at x
+            private int lineLength;
+
+            RleEncoder(Writer out, long minX, long minY) {
+                this.out = out;
+                this.y = minY;
+                this.minX = minX;
+                this.x = minX;
+            }
+
+            void cell(long cx, long cy) {
+                try {
+                    if (cy != y) {
+                        flushAlive();
+                        emit(cy - y, '$');
+                        y = cy;
+                        x = minX;
+                    }
+                    if (cx != x) {
+                        flushAlive();
+                        emit(cx - x, 'b');
+                    }
+                    aliveRun++;
+                    x = cx + 1;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+
+            private void flushAlive() throws IOException {
+                if (aliveRun > 0) emit(aliveRun, 'o');
+                aliveRun = 0;
+            }
+
+            private void emit(long run, char tag) throws IOException {
+                String token = run == 1 ? String.valueOf(tag) : run + String.valueOf(tag);
+                if (lineLength + token.length() > RLE_LINE) {
+                    out.write('\n');
+                    lineLength = 0;
+                }
+                out.write(token);
+                lineLength += token.length();
+            }
+
+            void finish() throws IOException {
+                flushAlive();
+                out.write("!\n");
+            }
+        }
+
+        // ---------- Macrocell ----------
+
+        /**
+         * Node table of a macrocell file, kept as flat arrays. Level-3 nodes are 8x8 leaves
+         * (bit y * 8 + x), higher levels reference children by 1-based line number (0 = empty).
+         */
+        static class MacroTree {
+            int size;
+            int[] level = new int[1024];
+            int[] children = new int[4 * 1024];
+            long[] leaf = new long[1024];
+
+            int add(int lvl) {
+                if (size == level.length) {
+                    level = Arrays.copyOf(level, size * 2);
+                    children = Arrays.copyOf(children, size * 8);
+                    leaf = Arrays.copyOf(leaf, size * 2);
+                }
+                level[size] = lvl;
+                return size++;
+            }
+
+            int rootLevel() { return level[size - 1]; }
+        }
+
+        static void readMacrocell(BufferedReader in, LifeEngine engine) throws IOException {
+            MacroTree tree = new MacroTree();
+            String line = in.readLine();
+            if (line == null || !line.startsWith("[M2]")) throw new IOException("Not a macrocell file (missing [M2])");
+
+            while ((line = in.readLine()) != null) {
+                if (line.isEmpty()) continue;
+                char first = line.charAt(0);
+                if (first == '#') {
+                    if (line.startsWith("#R")) checkRule(line.substring(2));
+                } else if (first == '.' || first == '*' || first == '$') {
+                    int node = tree.add(3);
+                    long bits = 0;
+                    int x = 0, y = 0;
+                    for (int i = 0; i < line.length(); i++) {
+                        char ch = line.charAt(i);
+                        if (ch == '$') { y++; x = 0; }
+                        else if (ch == '*') { if (x < 8 && y < 8) bits |= 1L << (y * 8 + x); x++; }
+                        else if (ch == '.') x++;
+                    }
+                    tree.leaf[node] = bits;
+                } else {
+                    String[] f = line.trim().split("\\s+");
+                    if (f.length != 5) throw new IOException("Bad macrocell node: " + line);
+                    int node = tree.add(Integer.parseInt(f[0]));
+                    for (int q = 0; q < 4; q++) {
+                        int child = Integer.parseInt(f[q + 1]);
+                        if (tree.level[node] > 1 && child >= node + 1) throw new IOException("Forward reference in: " + line);
+                        tree.children[node * 4 + q] = child;
+                    }
+                }
+            }
+            if (tree.size == 0) return;
+
+            if (engine instanceof HashLifeEngine) {
+                ((HashLifeEngine) engine).importTree(tree);
+            } else {
+                // The macrocell universe is centered on the middle of the grid
+                int lvl = tree.rootLevel();
+                if (lvl > 62) throw new IOException("Macrocell root level too large: " + lvl);
+                long half = 1L << (lvl - 1);
+                rasterize(tree, tree.size, -half, -half, engine, -(engine.width() / 2), -(engine.height() / 2));
+            }
+        }
+
+        // Visit a 1-based node index with top-left universe corner (x0, y0), clipped to the grid
+        private static void rasterize(MacroTree tree, int index, long x0, long y0, LifeEngine engine, long minX, long minY) {
+            if (index == 0) return;
+            int node = index - 1;
+            int lvl = tree.level[node];
+            long side = 1L << lvl;
+            if (x0 >= minX + engine.width() || y0 >= minY + engine.height() || x0 + side <= minX || y0 + side <= minY) return;
+
+            if (lvl == 3) {
+                long bits = tree.leaf[node];
+                while (bits != 0) {
+                    int b = Long.numberOfTrailingZeros(bits);
+                    setClipped(engine, x0 + (b & 7), y0 + (b >>> 3), minX, minY);
+                    bits &= bits - 1;
+                }
+            } else if (lvl == 1) {
+                for (int q = 0; q < 4; q++) {
+                    if (tree.children[node * 4 + q] != 0) setClipped(engine, x0 + (q & 1), y0 + (q >> 1), minX, minY);
+                }
+            } else {
+                long h = side >>> 1;
+                for (int q = 0; q < 4; q++) {
+                    rasterize(tree, tree.children[node * 4 + q], x0 + (q & 1) * h, y0 + (q >> 1) * h, engine, minX, minY);
+                }
+            }
+        }
+
+        private static void setClipped(LifeEngine engine, long x, long y, long minX, long minY) {
+            if (x >= minX && y >= minY && x < minX + engine.width() && y < minY + engine.height()) {
+                engine.set((int) (y - minY), (int) (x - minX), true);
+            }
+        }
+
+        static void writeMacrocell(LifeEngine engine, Writer out) throws IOException {
+            HashLifeEngine hl;
+            if (engine instanceof HashLifeEngine) {
+                hl = (HashLifeEngine) engine;
+            } else {
+                hl = new HashLifeEngine(engine.width(), engine.height());
+                HashLifeEngine.Builder builder = hl.builder();
+                forEachCell(engine, builder::cell);
+                builder.finish();
+            }
+            out.write("[M2] (GameOfLife)\n#R B3/S23\n");
+            hl.exportTree(out);
+        }
+    }
+
     public static void main(String[] args) {
+        int width = args.length >= 2 ? Integer.parseInt(args[0]) : DEFAULT_GRID_WIDTH;
+        int height = args.length >= 2 ? Integer.parseInt(args[1]) : DEFAULT_GRID_HEIGHT;
+        Path patternFile = args.length >= 3 ? Paths.get(args[2]) : null;
+
         SwingUtilities.invokeLater(() -> {
             JFrame frame = new JFrame("Conway's Game of Life");
-            GameOfLife game = new GameOfLife();
+            GameOfLife game = new GameOfLife(width, height, ENGINE_BIT_PACKED);
 
             // Create control panel
             JPanel controlPanel = new JPanel();
@@ -312,6 +1932,17 @@ public class GameOfLife extends JPanel implements ActionListener {
                     "Select Pattern", "Glider", "Blinker", "Toad", "Beacon", "Pulsar", "Glider Gun"
             });
 
+            JComboBox<String> engineBox = new JComboBox<>(new String[]{ENGINE_BIT_PACKED, ENGINE_SPARSE, ENGINE_ARRAY, ENGINE_HASHLIFE});
+
+            JSpinner jumpSpinner = new JSpinner(new SpinnerNumberModel(10, 0, HashLifeEngine.MAX_STEP_LOG2, 1));
+            JButton jumpBtn = new JButton("Step 2^k");
+
+            JButton loadBtn = new JButton("Load...");
+            JButton saveBtn = new JButton("Save...");
+            JFileChooser chooser = new JFileChooser(".");
+            chooser.setFileFilter(new javax.swing.filechooser.FileNameExtensionFilter(
+                    "Life patterns (*.rle, *.mc, *.gz)", "rle", "mc", "gz"));
+
             startBtn.addActionListener(e -> {
                 game.isRunning = true;
                 game.timer.start();
@@ -341,6 +1972,39 @@ public class GameOfLife extends JPanel implements ActionListener {
                 game.randomize();
             });
 
+            jumpBtn.addActionListener(e -> {
+                int k = (Integer) jumpSpinner.getValue();
+                if (k > game.engine.maxStepLog2()) {
+                    JOptionPane.showMessageDialog(frame, game.engine.name() + " steps at most 2^" + game.engine.maxStepLog2()
+                            + " generations per jump, use " + ENGINE_HASHLIFE, "Step 2^k", JOptionPane.WARNING_MESSAGE);
+                    return;
+                }
+                game.isRunning = false;
+                game.timer.stop();
+                game.jumpGenerations(k);
+                game.repaint();
+            });
+
+            loadBtn.addActionListener(e -> {
+                if (chooser.showOpenDialog(frame) != JFileChooser.APPROVE_OPTION) return;
+                game.isRunning = false;
+                game.timer.stop();
+                try {
+                    game.loadFile(chooser.getSelectedFile().toPath());
+                } catch (IOException | RuntimeException ex) {
+                    JOptionPane.showMessageDialog(frame, "Could not load pattern: " + ex.getMessage(), "Load", JOptionPane.ERROR_MESSAGE);
+                }
+            });
+
+            saveBtn.addActionListener(e -> {
+                if (chooser.showSaveDialog(frame) != JFileChooser.APPROVE_OPTION) return;
+                try {
+                    game.saveFile(chooser.getSelectedFile().toPath());
+                } catch (IOException | RuntimeException ex) {
+                    JOptionPane.showMessageDialog(frame, "Could not save pattern: " + ex.getMessage(), "Save", JOptionPane.ERROR_MESSAGE);
+                }
+            });
+
             fasterBtn.addActionListener(e -> {
                 game.speed = Math.max(10, game.speed - 20);
                 game.timer.setDelay(game.speed);
@@ -363,6 +2027,17 @@ public class GameOfLife extends JPanel implements ActionListener {
                 }
             });
 
+            engineBox.addActionListener(e -> {
+                String selected = (String) engineBox.getSelectedItem();
+                if (selected == null || selected.equals(game.engine.name())) return;
+                try {
+                    game.switchEngine(selected);
+                } catch (IllegalArgumentException | OutOfMemoryError ex) {
+                    JOptionPane.showMessageDialog(frame, ex.getMessage(), "Engine", JOptionPane.ERROR_MESSAGE);
+                    engineBox.setSelectedItem(game.engine.name());
+                }
+            });
+
             controlPanel.add(startBtn);
             controlPanel.add(stopBtn);
             controlPanel.add(stepBtn);
@@ -373,11 +2048,32 @@ public class GameOfLife extends JPanel implements ActionListener {
             controlPanel.add(slowerBtn);
             controlPanel.add(new JLabel(" | "));
             controlPanel.add(patternBox);
+            controlPanel.add(engineBox);
+            controlPanel.add(new JLabel(" | k: "));
+            controlPanel.add(jumpSpinner);
+            controlPanel.add(jumpBtn);
+
+            JPanel filePanel = new JPanel(new FlowLayout());
+            filePanel.setBackground(controlPanel.getBackground());
+            filePanel.add(loadBtn);
+            filePanel.add(saveBtn);
+
+            JPanel southPanel = new JPanel(new GridLayout(2, 1));
+            southPanel.add(controlPanel);
+            southPanel.add(filePanel);
+
+            if (patternFile != null) {
+                try {
+                    game.loadFile(patternFile);
+                } catch (IOException | RuntimeException ex) {
+                    System.err.println("Could not load " + patternFile + ": " + ex.getMessage());
+                }
+            }
 
             frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
             frame.setLayout(new BorderLayout());
             frame.add(game, BorderLayout.CENTER);
-            frame.add(controlPanel, BorderLayout.SOUTH);
+            frame.add(southPanel, BorderLayout.SOUTH);
             frame.pack();
             frame.setLocationRelativeTo(null);
             frame.setResizable(false);
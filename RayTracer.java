@@ -1,8 +1,27 @@
 import javax.swing.*;
 import java.awt.*;
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
-import java.util.Random;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.zip.CRC32;
+import javax.imageio.ImageIO;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 /**
  * True Ray Tracer (Path Tracing)
@@ -13,27 +32,77 @@ import java.util.Random;
  * - Materials: Lambertian (Matte), Metal (Reflective), Dielectric (Glass/Refractive).
  * - Effects: Soft Shadows, Color Bleeding (Global Illumination), Defocus Blur (Depth of Field).
  * - Progressive Rendering: The image improves quality over time as more samples are accumulated.
+ * - Tile-parallel: 32x32 tiles traced on the ForkJoin pool, each with its own random stream.
+ * - BVH: the scene is wrapped in a SAH-binned bounding volume hierarchy.
+ *   "java RayTracer 2000" renders a field of 2000 random small spheres instead of the demo scene.
+ * - Adaptive sampling: pixels stop receiving samples once their estimated noise is below a target.
+ * - Headless batch mode: scene file in, PNG/PFM out, resumable checkpoints:
+ *   java RayTracer render scene.txt out.png [--size 1920x1080] [--spp 1024] [--time 3600]
+ *                  [--noise 0.01] [--seed 1] [--checkpoint out.png.ckpt] [--checkpoint-every 300]
  */
 public class RayTracer extends JFrame {
 
     private RenderPanel renderPanel;
 
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException {
+        if (args.length >= 3 && args[0].equals("render")) {
+            renderCommand(args);
+            return;
+        }
         SwingUtilities.invokeLater(() -> {
             try { UIManager.setLookAndFeel(UIManager.getSystemLookAndFeelClassName()); } catch (Exception ignored) {}
-            new RayTracer();
+            new RayTracer(args.length > 0 ? Integer.parseInt(args[0]) : 0);
         });
     }
 
     public RayTracer() {
+        this(0);
+    }
+
+    public RayTracer(int randomSpheres) {
         super("Java Path Tracer - Progressive Rendering");
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
-        setSize(800, 450); // 16:9 Aspect Ratio
-        setLocationRelativeTo(null);
         setResizable(false);
 
-        renderPanel = new RenderPanel(800, 450);
-        add(renderPanel);
+        renderPanel = new RenderPanel(800, 450, randomSpheres); // 16:9 Aspect Ratio
+        renderPanel.setPreferredSize(new Dimension(800, 450));
+        TileRenderer renderer = renderPanel.renderer;
+
+        // Setup UI
+        JPanel controls = new JPanel(new FlowLayout());
+        JCheckBox chkAdaptive = new JCheckBox("Adaptive sampling", renderer.adaptive);
+        chkAdaptive.setOpaque(false);
+        chkAdaptive.setForeground(Color.WHITE);
+        chkAdaptive.addActionListener(e -> renderer.setAdaptive(chkAdaptive.isSelected()));
+
+        JLabel lblNoise = new JLabel("Target noise:");
+        lblNoise.setForeground(Color.WHITE);
+        JComboBox<Double> cmbNoise = new JComboBox<>(new Double[] {0.04, 0.02, 0.01, 0.005, 0.0025});
+        cmbNoise.setSelectedItem(renderer.noiseThreshold);
+        cmbNoise.addActionListener(e -> {
+            renderer.setNoiseThreshold((Double) cmbNoise.getSelectedItem());
+            renderer.requestRedraw();
+        });
+
+        JCheckBox chkHeatmap = new JCheckBox("Noise heatmap", false);
+        chkHeatmap.setOpaque(false);
+        chkHeatmap.setForeground(Color.WHITE);
+        chkHeatmap.addActionListener(e -> {
+            renderer.heatmap = chkHeatmap.isSelected();
+            renderer.requestRedraw();
+        });
+
+        controls.add(chkAdaptive);
+        controls.add(lblNoise);
+        controls.add(cmbNoise);
+        controls.add(chkHeatmap);
+        controls.setBackground(new Color(30, 30, 30));
+
+        setLayout(new BorderLayout());
+        add(renderPanel, BorderLayout.CENTER);
+        add(controls, BorderLayout.SOUTH);
+        pack();
+        setLocationRelativeTo(null);
 
         setVisible(true);
 
@@ -46,27 +115,31 @@ public class RayTracer extends JFrame {
     static class RenderPanel extends JPanel implements Runnable {
         private int width, height;
         private BufferedImage image;
-        private double[] accumulationBufferR;
-        private double[] accumulationBufferG;
-        private double[] accumulationBufferB;
-        private int samples = 0;
         private boolean running = true;
 
         // Scene Data
-        private HittableList world;
-        private Camera camera;
+        HittableList world;
+        BVH bvh;
+        Camera camera;
+        final TileRenderer renderer;
 
         public RenderPanel(int w, int h) {
+            this(w, h, 0);
+        }
+
+        public RenderPanel(int w, int h, int randomSpheres) {
             this.width = w;
             this.height = h;
             this.image = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
 
-            // High precision buffers for accumulation
-            this.accumulationBufferR = new double[w * h];
-            this.accumulationBufferG = new double[w * h];
-            this.accumulationBufferB = new double[w * h];
+            if (randomSpheres > 0) initSphereField(randomSpheres, 42);
+            else initScene();
+            bvh = new BVH(world.objects);
 
-            initScene();
+            // Tiles write finished pixels straight into the image raster
+            int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+            renderer = new TileRenderer(w, h, bvh, camera, pixels, System.nanoTime());
+            renderer.setTileListener(this::repaint);
         }
 
         private void initScene() {
@@ -91,87 +164,659 @@ public class RayTracer extends JFrame {
             camera = new Camera(lookFrom, lookAt, new Vec3(0, 1, 0), 20, (double)width/height);
         }
 
+        /** Large ground sphere, three feature spheres and `count` small random spheres around them. */
+        void initSphereField(int count, long seed) {
+            world = new HittableList();
+
+            world.add(new Sphere(new Vec3(0, -1000, 0), 1000, new Lambertian(new Vec3(0.5, 0.5, 0.5))));
+            world.add(new Sphere(new Vec3(0, 1, 0), 1.0, new Dielectric(1.5)));
+            world.add(new Sphere(new Vec3(-4, 1, 0), 1.0, new Lambertian(new Vec3(0.4, 0.2, 0.1))));
+            world.add(new Sphere(new Vec3(4, 1, 0), 1.0, new Metal(new Vec3(0.7, 0.6, 0.5), 0.0)));
+            addRandomSpheres(world, count, seed);
+
+            camera = new Camera(new Vec3(13, 2, 3), new Vec3(0, 0, 0), new Vec3(0, 1, 0), 20, (double)width/height);
+        }
+
+        // Spread the small spheres over a square that grows with the count (~1 per unit^2)
+        static void addRandomSpheres(HittableList world, int count, long seed) {
+            SplittableRandom rng = new SplittableRandom(seed);
+            double half = Math.max(11, Math.sqrt(count) * 0.5);
+            for (int i = 0; i < count; i++) {
+                Vec3 center = new Vec3((rng.nextDouble() * 2 - 1) * half, 0.2, (rng.nextDouble() * 2 - 1) * half);
+                double choose = rng.nextDouble();
+                Material mat;
+                if (choose < 0.8) mat = new Lambertian(Vec3.mult(Vec3.random(rng), Vec3.random(rng)));
+                else if (choose < 0.95) mat = new Metal(Vec3.add(Vec3.mult(Vec3.random(rng), 0.5), 0.5), rng.nextDouble() * 0.5);
+                else mat = new Dielectric(1.5);
+                world.add(new Sphere(center, 0.2, mat));
+            }
+        }
+
         @Override
         public void run() {
-            Random rand = new Random();
-            int maxDepth = 20; // Max light bounces
-
             while (running) {
-                samples++;
+                renderer.redrawIfRequested();
+                if (renderer.adaptive && renderer.activePixels() == 0) {
+                    // Everything is below the noise target; idle until a setting changes
+                    try { Thread.sleep(50); } catch (InterruptedException e) { return; }
+                    continue;
+                }
+                renderer.renderPass(); // 1 sample per active pixel, tiles repaint as they finish
+                repaint();
+            }
+        }
+
+        @Override
+        protected void paintComponent(Graphics g) {
+            super.paintComponent(g);
+            g.drawImage(image, 0, 0, null);
+            g.setColor(Color.WHITE);
+            int total = width * height;
+            g.drawString(String.format("Samples: %d (%.1f avg/pixel)", renderer.samples(),
+                    (double) renderer.totalSamples() / total), 10, 20);
+            g.drawString(String.format("%.2f Msamples/s", renderer.samplesPerSecond() / 1e6), 10, 35);
+            g.drawString(String.format("BVH: %d objects, %d nodes, %.2f ms build",
+                    world.objects.size(), bvh.nodeCount(), bvh.buildNanos / 1e6), 10, 50);
+            if (renderer.adaptive) {
+                int active = renderer.activePixels();
+                g.drawString(active == 0 ? String.format("Converged to noise %.4f", renderer.noiseThreshold)
+                        : String.format("Active pixels: %.1f%%", 100.0 * active / total), 10, 65);
+            }
+        }
+    }
+
+    /**
+     * Progressive path tracer core, independent of Swing.
+     * The image is cut into 32x32 tiles. Every pass traces one sample per pixel, with each tile
+     * a ForkJoin task on the common pool (work stealing evens out cheap sky tiles against glass).
+     * Each tile owns a SplittableRandom split from the seed, so the random streams never contend
+     * and a render is reproducible for a given seed no matter which thread picks up which tile.
+     * A finished tile converts its pixels to RGB in a tile-local buffer and copies them into the
+     * target int[] row by row.
+     * * Adaptive sampling:
+     * - Each pixel keeps its own sample count and a running (Welford) mean and variance of
+     *   sample luminance.
+     * - Noise is the standard error of that mean, carried through the sqrt gamma into display
+     *   units: stderr / (2 * sqrt(mean)). 0.01 is about 2.5 of 255 levels.
+     * - With adaptive on, a pixel that has at least MIN_SAMPLES and noise at or below
+     *   noiseThreshold is skipped. A tile with no pixels left does no tracing, copying or repaint.
+     */
+    static class TileRenderer {
+        static final int TILE = 32;
+        static final int MAX_DEPTH = 20; // Max light bounces
+        static final int MIN_SAMPLES = 16; // Before a pixel's variance estimate is trusted
+
+        interface TileListener {
+            void tileDone(int x, int y, int w, int h);
+        }
+
+        final int width, height;
+        final Hittable world;
+        final Camera camera;
+
+        // High precision buffers for accumulation
+        final double[] accumulationBufferR, accumulationBufferG, accumulationBufferB;
+        // Per-pixel sample count and running luminance statistics (Welford)
+        final int[] sampleCount;
+        final double[] lumMean, lumM2;
+        private final int[] pixels;
+        private volatile int samples = 0;
+
+        volatile boolean adaptive = true;
+        volatile double noiseThreshold = 0.01;
+        volatile boolean heatmap = false;
+        private volatile int activePixels;
+        private volatile long totalSamples;
+
+        private final Tile[] tiles;
+        private final RecursiveAction root = new RecursiveAction() {
+            @Override
+            protected void compute() {
+                invokeAll(tiles);
+            }
+        };
+        private TileListener listener = (x, y, w, h) -> {};
+        private volatile double samplesPerSecond;
+        private volatile boolean redrawRequested;
+
+        TileRenderer(int width, int height, Hittable world, Camera camera, int[] pixels, long seed) {
+            this.width = width;
+            this.height = height;
+            this.world = world;
+            this.camera = camera;
+            this.pixels = pixels;
+            this.accumulationBufferR = new double[width * height];
+            this.accumulationBufferG = new double[width * height];
+            this.accumulationBufferB = new double[width * height];
+            this.sampleCount = new int[width * height];
+            this.lumMean = new double[width * height];
+            this.lumM2 = new double[width * height];
+            this.activePixels = width * height;
+
+            int tilesX = (width + TILE - 1) / TILE, tilesY = (height + TILE - 1) / TILE;
+            tiles = new Tile[tilesX * tilesY];
+            for (int ty = 0; ty < tilesY; ty++) {
+                for (int tx = 0; tx < tilesX; tx++) {
+                    int x0 = tx * TILE, y0 = ty * TILE;
+                    tiles[ty * tilesX + tx] = new Tile(x0, y0, Math.min(TILE, width - x0), Math.min(TILE, height - y0));
+                }
+            }
+            reseed(seed);
+        }
+
+        // Give every tile a fresh random stream split from seed
+        void reseed(long seed) {
+            SplittableRandom master = new SplittableRandom(seed);
+            for (Tile t : tiles) t.rng = master.split();
+        }
+
+        void setTileListener(TileListener listener) { this.listener = listener; }
+        int samples() { return samples; }
+        double samplesPerSecond() { return samplesPerSecond; }
+        long totalSamples() { return totalSamples; }
+        // Pixels that took a sample in the last pass
+        int activePixels() { return activePixels; }
+
+        // Changing either setting re-arms the renderer until the next pass recounts active pixels
+        void setAdaptive(boolean adaptive) {
+            this.adaptive = adaptive;
+            activePixels = width * height;
+        }
+
+        void setNoiseThreshold(double threshold) {
+            noiseThreshold = threshold;
+            activePixels = width * height;
+        }
+
+        // One sample per (active) pixel over the whole image; returns the samples traced
+        int renderPass() {
+            long start = System.nanoTime();
+            samples++;
+            root.reinitialize();
+            for (Tile t : tiles) t.reinitialize();
+            ForkJoinPool.commonPool().invoke(root);
+
+            int traced = 0;
+            for (Tile t : tiles) traced += t.traced;
+            activePixels = traced;
+            totalSamples += traced;
+            samplesPerSecond = traced / ((System.nanoTime() - start) / 1e9);
+            return traced;
+        }
+
+        // Estimated noise of a pixel in display (gamma) units, infinite until it has two samples
+        double noise(int index) {
+            int n = sampleCount[index];
+            if (n < 2) return Double.POSITIVE_INFINITY;
+            double stdErr = Math.sqrt(lumM2[index] / (n - 1) / n);
+            return stdErr / (2 * Math.sqrt(Math.max(lumMean[index], 1e-4)));
+        }
+
+        private boolean converged(int index, double threshold) {
+            return sampleCount[index] >= MIN_SAMPLES && noise(index) <= threshold;
+        }
+
+        // Display colour of a pixel: the averaged image, or noise relative to the target as a heatmap
+        private int displayRGB(int index) {
+            int n = sampleCount[index];
+            if (n == 0) return 0;
+            if (heatmap) {
+                // Blue = converged, through green to red at 4x the target or more
+                double t = clamp(noise(index) / noiseThreshold / 4, 0, 1);
+                if (converged(index, noiseThreshold)) t = 0;
+                return toRGB(t * t, 4 * t * (1 - t) * 0.6, (1 - t) * (1 - t));
+            }
+            double scale = 1.0 / n;
+            return toRGB(accumulationBufferR[index] * scale, accumulationBufferG[index] * scale, accumulationBufferB[index] * scale);
+        }
+
+        // Safe from any thread: the tiles' rgb buffers belong to the render thread, which redraws between passes
+        void requestRedraw() {
+            redrawRequested = true;
+        }
+
+        // Render thread only, between passes
+        void redrawIfRequested() {
+            if (!redrawRequested) return;
+            redrawRequested = false;
+            redraw();
+        }
 
-                // Render one pass (1 sample per pixel)
+        // Rebuild every displayed pixel, e.g. after switching the heatmap or the noise target.
+        // Writes the tile buffers, so it must not overlap a renderPass.
+        void redraw() {
+            for (Tile t : tiles) {
+                for (int j = t.y0; j < t.y0 + t.h; j++) {
+                    for (int i = t.x0; i < t.x0 + t.w; i++) {
+                        t.rgb[(i - t.x0) + (j - t.y0) * t.w] = displayRGB(i + j * width);
+                    }
+                }
+                t.copyOut();
+                listener.tileDone(t.x0, t.y0, t.w, t.h);
+            }
+        }
+
+        // --- Checkpoints ---
+        // Little-endian: 64-byte header, then the R, G, B sums, luminance mean and M2 as doubles and
+        // the per-pixel sample counts as ints. Written to a temp file and moved into place, so a
+        // crash mid-write leaves the previous checkpoint intact.
+        private static final long CKPT_MAGIC = 0x544E504B48435452L; // "RTCHKPNT"
+        private static final int CKPT_VERSION = 1;
+        private static final int CKPT_HEADER = 64;
+
+        void saveCheckpoint(Path path, long sceneHash) throws IOException {
+            int n = width * height;
+            ByteBuffer header = ByteBuffer.allocate(CKPT_HEADER).order(ByteOrder.LITTLE_ENDIAN);
+            header.putLong(CKPT_MAGIC).putInt(CKPT_VERSION).putInt(width).putInt(height)
+                  .putInt(samples).putLong(totalSamples).putLong(sceneHash);
+            header.clear();
+            ByteBuffer body = ByteBuffer.allocate(n * (5 * Double.BYTES + Integer.BYTES)).order(ByteOrder.LITTLE_ENDIAN);
+            for (double[] a : new double[][] {accumulationBufferR, accumulationBufferG, accumulationBufferB, lumMean, lumM2}) {
+                body.asDoubleBuffer().put(a);
+                body.position(body.position() + n * Double.BYTES);
+            }
+            body.asIntBuffer().put(sampleCount);
+            body.clear();
+
+            Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+            try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.WRITE)) {
+                while (header.hasRemaining()) ch.write(header);
+                while (body.hasRemaining()) ch.write(body);
+                ch.force(true);
+            }
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+
+        /**
+         * Restores the buffers written by saveCheckpoint. The checkpoint must come from the same
+         * scene file and image size. Callers should reseed afterwards so the resumed passes do not
+         * replay the random streams of the passes already taken.
+         */
+        void loadCheckpoint(Path path, long sceneHash) throws IOException {
+            int n = width * height;
+            try (FileChannel ch = FileChannel.open(path, StandardOpenOption.READ)) {
+                long expected = CKPT_HEADER + (long) n * (5 * Double.BYTES + Integer.BYTES);
+                ByteBuffer header = ByteBuffer.allocate(CKPT_HEADER).order(ByteOrder.LITTLE_ENDIAN);
+                while (header.hasRemaining() && ch.read(header) > 0) { }
+                header.flip();
+                if (header.remaining() < CKPT_HEADER || header.getLong() != CKPT_MAGIC) throw new IOException("Not a render checkpoint: " + path);
+                if (header.getInt() != CKPT_VERSION) throw new IOException("Unsupported checkpoint version in " + path);
+                int w = header.getInt(), h = header.getInt();
+                if (w != width || h != height) throw new IOException("Checkpoint is " + w + "x" + h + ", render is " + width + "x" + height);
+                int passes = header.getInt();
+                long total = header.getLong();
+                if (header.getLong() != sceneHash) throw new IOException("Checkpoint was made from a different scene file: " + path);
+                if (ch.size() != expected) throw new IOException("Truncated or corrupt checkpoint: " + path);
+
+                ByteBuffer body = ByteBuffer.allocate((int) (expected - CKPT_HEADER)).order(ByteOrder.LITTLE_ENDIAN);
+                while (body.hasRemaining() && ch.read(body) > 0) { }
+                body.flip();
+                for (double[] a : new double[][] {accumulationBufferR, accumulationBufferG, accumulationBufferB, lumMean, lumM2}) {
+                    body.asDoubleBuffer().get(a);
+                    body.position(body.position() + n * Double.BYTES);
+                }
+                body.asIntBuffer().get(sampleCount);
+                samples = passes;
+                totalSamples = total;
+                activePixels = n;
+            }
+            redraw();
+        }
+
+        // --- Output ---
+
+        // PNG: gamma-corrected 8-bit, as displayed. PFM: linear float radiance (rows bottom-up, little-endian).
+        void writeImage(Path path) throws IOException {
+            int n = width * height;
+            String name = path.getFileName().toString();
+            String format = name.substring(name.lastIndexOf('.') + 1).toLowerCase();
+            if (format.equals("pfm")) {
+                byte[] head = ("PF\n" + width + " " + height + "\n-1.0\n").getBytes(StandardCharsets.US_ASCII);
+                ByteBuffer body = ByteBuffer.allocate(n * 3 * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
                 for (int j = height - 1; j >= 0; j--) {
                     for (int i = 0; i < width; i++) {
+                        int index = i + j * width;
+                        double scale = sampleCount[index] > 0 ? 1.0 / sampleCount[index] : 0;
+                        body.putFloat((float) (accumulationBufferR[index] * scale));
+                        body.putFloat((float) (accumulationBufferG[index] * scale));
+                        body.putFloat((float) (accumulationBufferB[index] * scale));
+                    }
+                }
+                body.flip();
+                try (FileChannel ch = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                        StandardOpenOption.WRITE)) {
+                    ch.write(ByteBuffer.wrap(head));
+                    while (body.hasRemaining()) ch.write(body);
+                }
+                return;
+            }
+            BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+            int[] rgb = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+            for (int index = 0; index < n; index++) {
+                double scale = sampleCount[index] > 0 ? 1.0 / sampleCount[index] : 0;
+                rgb[index] = toRGB(accumulationBufferR[index] * scale, accumulationBufferG[index] * scale, accumulationBufferB[index] * scale);
+            }
+            if (!ImageIO.write(image, format, path.toFile())) throw new IOException("No image writer for ." + format);
+        }
+
+        private class Tile extends RecursiveAction {
+            final int x0, y0, w, h;
+            SplittableRandom rng;
+            final int[] rgb;
+            final PathScratch scratch = new PathScratch();
+            int traced;
+
+            Tile(int x0, int y0, int w, int h) {
+                this.x0 = x0; this.y0 = y0; this.w = w; this.h = h;
+                this.rgb = new int[w * h];
+            }
+
+            @Override
+            protected void compute() {
+                boolean skipConverged = adaptive;
+                double threshold = noiseThreshold;
+                traced = 0;
+                for (int j = y0; j < y0 + h; j++) {
+                    for (int i = x0; i < x0 + w; i++) {
+                        int index = i + j * width;
+                        if (skipConverged && converged(index, threshold)) continue;
+                        traced++;
+
                         // Anti-aliasing: Jitter the ray slightly within the pixel
-                        double u = (i + rand.nextDouble()) / (width - 1);
-                        double v = (height - 1 - j + rand.nextDouble()) / (height - 1);
+                        double u = (i + rng.nextDouble()) / (width - 1);
+                        double v = (height - 1 - j + rng.nextDouble()) / (height - 1);
 
-                        Ray r = camera.getRay(u, v);
-                        Vec3 pixelColor = rayColor(r, world, maxDepth);
+                        Ray r = camera.getRay(u, v, scratch.ray);
+                        Vec3 pixelColor = rayColor(r, world, MAX_DEPTH, rng, scratch);
 
                         // Accumulate
-                        int index = i + j * width;
                         accumulationBufferR[index] += pixelColor.x;
                         accumulationBufferG[index] += pixelColor.y;
                         accumulationBufferB[index] += pixelColor.z;
 
-                        // Average and Draw
-                        // (We do this per pixel so the user sees updates immediately)
-                        double scale = 1.0 / samples;
-                        // Gamma Correction (Approximate gamma 2.0 with sqrt)
-                        double rCol = Math.sqrt(accumulationBufferR[index] * scale);
-                        double gCol = Math.sqrt(accumulationBufferG[index] * scale);
-                        double bCol = Math.sqrt(accumulationBufferB[index] * scale);
-
-                        int ir = (int)(255.999 * clamp(rCol, 0, 0.999));
-                        int ig = (int)(255.999 * clamp(gCol, 0, 0.999));
-                        int ib = (int)(255.999 * clamp(bCol, 0, 0.999));
+                        // Running luminance variance
+                        double lum = 0.2126 * pixelColor.x + 0.7152 * pixelColor.y + 0.0722 * pixelColor.z;
+                        int n = ++sampleCount[index];
+                        double delta = lum - lumMean[index];
+                        lumMean[index] += delta / n;
+                        lumM2[index] += delta * (lum - lumMean[index]);
 
-                        image.setRGB(i, j, (ir << 16) | (ig << 8) | ib);
+                        rgb[(i - x0) + (j - y0) * w] = displayRGB(index);
                     }
                 }
-                repaint(); // Refresh screen after every full pass
+                if (traced == 0) return; // Fully converged tile
+                copyOut();
+                listener.tileDone(x0, y0, w, h);
             }
+
+            void copyOut() {
+                for (int row = 0; row < h; row++) {
+                    System.arraycopy(rgb, row * w, pixels, x0 + (y0 + row) * width, w);
+                }
+            }
+        }
+
+        // Gamma Correction (Approximate gamma 2.0 with sqrt)
+        static int toRGB(double r, double g, double b) {
+            int ir = (int)(255.999 * clamp(Math.sqrt(r), 0, 0.999));
+            int ig = (int)(255.999 * clamp(Math.sqrt(g), 0, 0.999));
+            int ib = (int)(255.999 * clamp(Math.sqrt(b), 0, 0.999));
+            return (ir << 16) | (ig << 8) | ib;
+        }
+
+        /**
+         * Per-thread buffers for the allocation-free tracing path. One per tile, so nothing is
+         * shared between workers and nothing is allocated per ray or per bounce.
+         */
+        static final class PathScratch {
+            final Ray ray = new Ray(), scattered = new Ray();
+            final HitRecord rec = new HitRecord();
+            final Vec3 attenuation = new Vec3(0, 0, 0);
+            final Vec3 color = new Vec3(0, 0, 0);
         }
 
         // The Core Ray Tracing Algorithm
-        private Vec3 rayColor(Ray r, Hittable world, int depth) {
-            // If we've exceeded the ray bounce limit, no more light is gathered.
-            if (depth <= 0) return new Vec3(0, 0, 0);
-
-            HitRecord rec = new HitRecord();
-            // 0.001 to ignore very close hits (Shadow Acne fix)
-            if (world.hit(r, 0.001, Double.POSITIVE_INFINITY, rec)) {
-                Ray scattered = new Ray(new Vec3(0,0,0), new Vec3(0,0,0));
-                Vec3 attenuation = new Vec3(0,0,0);
-
-                if (rec.mat.scatter(r, rec, attenuation, scattered)) {
-                    // Recursive bounce: Multiply color by current material color * remaining light
-                    Vec3 nextColor = rayColor(scattered, world, depth - 1);
-                    return new Vec3(attenuation.x * nextColor.x, attenuation.y * nextColor.y, attenuation.z * nextColor.z);
+        // Iterative form of the recursive bounce: the colour is the product of the attenuations
+        // along the path times the sky, so carry that product forward instead of unwinding a stack.
+        // Returns scratch.color, which is overwritten by the next call.
+        static Vec3 rayColor(Ray r, Hittable world, int maxDepth, SplittableRandom rng, PathScratch scratch) {
+            Ray ray = scratch.ray, scattered = scratch.scattered;
+            HitRecord rec = scratch.rec;
+            Vec3 attenuation = scratch.attenuation;
+            Vec3 color = scratch.color;
+            ray.set(r);
+            double tr = 1, tg = 1, tb = 1;
+
+            for (int depth = maxDepth; depth > 0; depth--) {
+                // 0.001 to ignore very close hits (Shadow Acne fix)
+                if (!world.hit(ray, 0.001, Double.POSITIVE_INFINITY, rec)) {
+                    // Background (Sky Gradient): linear blend white to blue
+                    Vec3 d = ray.direction;
+                    double t = 0.5 * (d.y * (1.0 / d.length()) + 1.0);
+                    return color.set(tr * (1.0 - t + 0.5 * t), tg * (1.0 - t + 0.7 * t), tb * (1.0 - t + t));
+                }
+                if (!rec.mat.scatter(ray, rec, attenuation, scattered, rng)) {
+                    return color.set(0, 0, 0); // Absorbed
                 }
-                return new Vec3(0, 0, 0); // Absorbed
+                tr *= attenuation.x; tg *= attenuation.y; tb *= attenuation.z;
+                Ray tmp = ray; ray = scattered; scattered = tmp;
             }
+            // Exceeded the ray bounce limit, no more light is gathered.
+            return color.set(0, 0, 0);
+        }
+    }
 
-            // Background (Sky Gradient)
-            Vec3 unitDirection = r.direction.unitVector();
-            double t = 0.5 * (unitDirection.y + 1.0);
-            // Linear blend: white to blue
-            Vec3 white = new Vec3(1.0, 1.0, 1.0);
-            Vec3 blue = new Vec3(0.5, 0.7, 1.0);
-            return Vec3.add(Vec3.mult(white, 1.0 - t), Vec3.mult(blue, t));
+    // --- BATCH RENDERING ---
+
+    /**
+     * Plain-text scene description, one directive per line, '#' starts a comment:
+     *   size 800 450
+     *   camera <from x y z> <at x y z> <up x y z> <vfov degrees>
+     *   material <name> lambertian <r g b> | metal <r g b> <fuzz> | dielectric <ior>
+     *   sphere <x y z> <radius> <material>        (negative radius = inward-facing shell)
+     *   random_spheres <count> <seed>             (the sphere field of "java RayTracer N")
+     * The CRC32 of the file ties checkpoints to the scene they were rendered from.
+     */
+    static class SceneFile {
+        final HittableList world = new HittableList();
+        Vec3 lookFrom = new Vec3(3, 3, 2), lookAt = new Vec3(0, 0, -1), vUp = new Vec3(0, 1, 0);
+        double vFov = 20;
+        int width = 800, height = 450;
+        long hash;
+
+        Camera camera() {
+            return new Camera(lookFrom, lookAt, vUp, vFov, (double) width / height);
         }
 
-        @Override
-        protected void paintComponent(Graphics g) {
-            super.paintComponent(g);
-            g.drawImage(image, 0, 0, null);
-            g.setColor(Color.WHITE);
-            g.drawString("Samples: " + samples, 10, 20);
-            g.drawString("Wait for image to clear...", 10, 35);
+        static SceneFile load(Path path) throws IOException {
+            byte[] bytes = Files.readAllBytes(path);
+            CRC32 crc = new CRC32();
+            crc.update(bytes);
+            SceneFile scene = new SceneFile();
+            scene.hash = crc.getValue();
+
+            Map<String, Material> materials = new HashMap<>();
+            String[] lines = new String(bytes, StandardCharsets.UTF_8).split("\r?\n");
+            for (int ln = 0; ln < lines.length; ln++) {
+                String line = lines[ln];
+                int hashAt = line.indexOf('#');
+                if (hashAt >= 0) line = line.substring(0, hashAt);
+                line = line.trim();
+                if (line.isEmpty()) continue;
+                String[] f = line.split("\\s+");
+                try {
+                    switch (f[0]) {
+                        case "size":
+                            expect(f, 3);
+                            scene.width = Integer.parseInt(f[1]);
+                            scene.height = Integer.parseInt(f[2]);
+                            if (scene.width <= 0 || scene.height <= 0) throw new IllegalArgumentException("size must be positive");
+                            break;
+                        case "camera":
+                            expect(f, 11);
+                            scene.lookFrom = vec(f, 1);
+                            scene.lookAt = vec(f, 4);
+                            scene.vUp = vec(f, 7);
+                            scene.vFov = Double.parseDouble(f[10]);
+                            break;
+                        case "material":
+                            if (f.length < 3) throw new IllegalArgumentException("material needs a name and a type");
+                            materials.put(f[1], material(f));
+                            break;
+                        case "sphere": {
+                            expect(f, 6);
+                            Material mat = materials.get(f[5]);
+                            if (mat == null) throw new IllegalArgumentException("unknown material '" + f[5] + "'");
+                            scene.world.add(new Sphere(vec(f, 1), Double.parseDouble(f[4]), mat));
+                            break;
+                        }
+                        case "random_spheres":
+                            expect(f, 3);
+                            RenderPanel.addRandomSpheres(scene.world, Integer.parseInt(f[1]), Long.parseLong(f[2]));
+                            break;
+                        default:
+                            throw new IllegalArgumentException("unknown directive '" + f[0] + "'");
+                    }
+                } catch (IllegalArgumentException e) { // Includes NumberFormatException
+                    throw new IOException(path + ":" + (ln + 1) + ": " + e.getMessage());
+                }
+            }
+            if (scene.world.objects.isEmpty()) throw new IOException(path + ": scene has no objects");
+            return scene;
+        }
+
+        private static Material material(String[] f) {
+            switch (f[2]) {
+                case "lambertian":
+                    expect(f, 6);
+                    return new Lambertian(vec(f, 3));
+                case "metal":
+                    expect(f, 7);
+                    return new Metal(vec(f, 3), Double.parseDouble(f[6]));
+                case "dielectric":
+                    expect(f, 4);
+                    return new Dielectric(Double.parseDouble(f[3]));
+                default:
+                    throw new IllegalArgumentException("unknown material type '" + f[2] + "'");
+            }
+        }
+
+        private static void expect(String[] f, int fields) {
+            if (f.length != fields) throw new IllegalArgumentException(f[0] + " takes " + (fields - 1) + " values, got " + (f.length - 1));
+        }
+
+        private static Vec3 vec(String[] f, int at) {
+            return new Vec3(Double.parseDouble(f[at]), Double.parseDouble(f[at + 1]), Double.parseDouble(f[at + 2]));
         }
     }
 
+    static void renderCommand(String[] args) throws IOException {
+        Path scenePath = Paths.get(args[1]);
+        Path out = Paths.get(args[2]);
+        int width = -1, height = -1;
+        int spp = 1024;
+        double timeLimit = Double.POSITIVE_INFINITY;
+        double noise = 0;
+        long seed = 1;
+        Path checkpoint = Paths.get(args[2] + ".ckpt");
+        double checkpointEvery = 300;
+
+        for (int i = 3; i < args.length; i++) {
+            String opt = args[i];
+            if (i + 1 >= args.length) {
+                System.err.println("Missing value for " + opt);
+                renderUsage();
+                return;
+            }
+            String v = args[++i];
+            try {
+                switch (opt) {
+                    case "--size": {
+                        String[] wh = v.toLowerCase().split("x");
+                        if (wh.length != 2) throw new NumberFormatException("expected WIDTHxHEIGHT, got " + v);
+                        width = Integer.parseInt(wh[0]);
+                        height = Integer.parseInt(wh[1]);
+                        if (width <= 0 || height <= 0) throw new NumberFormatException("size must be positive, got " + v);
+                        break;
+                    }
+                    case "--spp": spp = Integer.parseInt(v); break;
+                    case "--time": timeLimit = Double.parseDouble(v); break;
+                    case "--noise": noise = Double.parseDouble(v); break;
+                    case "--seed": seed = Long.parseLong(v); break;
+                    case "--checkpoint": checkpoint = Paths.get(v); break;
+                    case "--checkpoint-every": checkpointEvery = Double.parseDouble(v); break;
+                    default:
+                        System.err.println("Unknown option " + opt);
+                        renderUsage();
+                        return;
+                }
+            } catch (NumberFormatException e) {
+                System.err.println("Bad value for " + opt + ": " + e.getMessage());
+                renderUsage();
+                return;
+            }
+        }
+
+        SceneFile scene = SceneFile.load(scenePath);
+        if (width > 0) {
+            scene.width = width;
+            scene.height = height;
+        }
+        renderHeadless(scene, out, spp, timeLimit, noise, seed, checkpoint, checkpointEvery);
+    }
+
+    private static void renderUsage() {
+        System.err.println("Usage: java RayTracer render scene.txt out.png [--size WIDTHxHEIGHT] [--spp 1024] [--time seconds]");
+        System.err.println("                      [--noise 0.01] [--seed 1] [--checkpoint file] [--checkpoint-every seconds]");
+    }
+
+    /**
+     * Renders without a window until spp passes, the time budget (seconds) or, with noise > 0,
+     * the adaptive noise target is reached. Resumes from the checkpoint if it exists and writes a
+     * new one every checkpointEvery seconds and at the end, so a later run can continue it.
+     */
+    static void renderHeadless(SceneFile scene, Path out, int spp, double timeLimit, double noise, long seed,
+                               Path checkpoint, double checkpointEvery) throws IOException {
+        BVH bvh = new BVH(scene.world.objects);
+        TileRenderer renderer = new TileRenderer(scene.width, scene.height, bvh, scene.camera(),
+                new int[scene.width * scene.height], seed);
+        renderer.setAdaptive(noise > 0);
+        if (noise > 0) renderer.setNoiseThreshold(noise);
+        System.out.printf("Scene: %d objects, BVH %d nodes in %.1f ms, %dx%d%n", scene.world.objects.size(),
+                bvh.nodeCount(), bvh.buildNanos / 1e6, scene.width, scene.height);
+
+        if (Files.exists(checkpoint)) {
+            renderer.loadCheckpoint(checkpoint, scene.hash);
+            // Fresh streams for the remaining passes, distinct from the ones already accumulated
+            renderer.reseed(seed ^ (renderer.samples() * 0x9E3779B97F4A7C15L));
+            System.out.printf("Resumed from %s at pass %d (%d samples)%n", checkpoint, renderer.samples(), renderer.totalSamples());
+        }
+
+        long start = System.nanoTime(), lastCheckpoint = start, lastReport = start;
+        long startSamples = renderer.totalSamples();
+        while (renderer.samples() < spp && (System.nanoTime() - start) / 1e9 < timeLimit) {
+            if (renderer.renderPass() == 0) break; // Adaptive: every pixel reached the noise target
+            long now = System.nanoTime();
+            if ((now - lastCheckpoint) / 1e9 >= checkpointEvery) {
+                renderer.saveCheckpoint(checkpoint, scene.hash);
+                lastCheckpoint = now;
+            }
+            if ((now - lastReport) / 1e9 >= 10) {
+                System.out.printf("pass %d/%d, %.2f Msamples/s%n", renderer.samples(), spp, renderer.samplesPerSecond() / 1e6);
+                lastReport = now;
+            }
+        }
+        renderer.saveCheckpoint(checkpoint, scene.hash);
+        renderer.writeImage(out);
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+        long traced = renderer.totalSamples() - startSamples;
+        System.out.printf("Rendered %s: %d passes, %.1f samples/pixel, %d samples this run in %.1f s (%.3f Msamples/s)%n",
+                out, renderer.samples(), (double) renderer.totalSamples() / (scene.width * scene.height),
+                traced, seconds, traced / seconds / 1e6);
+    }
+
     // --- MATH UTILITIES ---
 
     static double clamp(double x, double min, double max) {
@@ -194,65 +839,69 @@ public class RayTracer extends JFrame {
             return new Vec3(u.y * v.z - u.z * v.y, u.z * v.x - u.x * v.z, u.x * v.y - u.y * v.x);
         }
 
+        // In-place variants for the tracing loop; each returns this
+        Vec3 set(double x, double y, double z) { this.x = x; this.y = y; this.z = z; return this; }
+        Vec3 set(Vec3 v) { x = v.x; y = v.y; z = v.z; return this; }
+        Vec3 addLocal(Vec3 v) { x += v.x; y += v.y; z += v.z; return this; }
+        Vec3 multLocal(double t) { x *= t; y *= t; z *= t; return this; }
+        Vec3 normalizeLocal() { return multLocal(1.0/length()); }
+
         double lengthSquared() { return x*x + y*y + z*z; }
         double length() { return Math.sqrt(lengthSquared()); }
         Vec3 unitVector() { return mult(this, 1.0/length()); }
 
-        static Vec3 random() {
-            Random r = new Random();
-            return new Vec3(r.nextDouble(), r.nextDouble(), r.nextDouble());
+        static Vec3 random(SplittableRandom rng) {
+            return new Vec3(rng.nextDouble(), rng.nextDouble(), rng.nextDouble());
         }
 
-        static Vec3 randomInUnitSphere() {
+        // Rejection-sampled point inside the unit sphere, written into this
+        Vec3 setRandomInUnitSphere(SplittableRandom rng) {
             while (true) {
-                Vec3 p = sub(mult(random(), 2.0), new Vec3(1,1,1));
-                if (p.lengthSquared() >= 1) continue;
-                return p;
+                x = rng.nextDouble() * 2.0 - 1;
+                y = rng.nextDouble() * 2.0 - 1;
+                z = rng.nextDouble() * 2.0 - 1;
+                if (lengthSquared() < 1) return this;
             }
         }
 
-        static Vec3 randomUnitVector() {
-            return randomInUnitSphere().unitVector();
-        }
-
         boolean nearZero() {
             double s = 1e-8;
             return (Math.abs(x) < s) && (Math.abs(y) < s) && (Math.abs(z) < s);
         }
-
-        static Vec3 reflect(Vec3 v, Vec3 n) {
-            return sub(v, mult(n, 2 * dot(v, n)));
-        }
-
-        static Vec3 refract(Vec3 uv, Vec3 n, double etaiOverEtat) {
-            double cosTheta = Math.min(dot(mult(uv, -1), n), 1.0);
-            Vec3 rOutPerp = mult(add(uv, mult(n, cosTheta)), etaiOverEtat);
-            double rOutParallel = -Math.sqrt(Math.abs(1.0 - rOutPerp.lengthSquared()));
-            return add(rOutPerp, mult(n, rOutParallel));
-        }
     }
 
     static class Ray {
         public Vec3 origin, direction;
         public Ray(Vec3 origin, Vec3 direction) { this.origin = origin; this.direction = direction; }
-        public Vec3 at(double t) { return Vec3.add(origin, Vec3.mult(direction, t)); }
+        // Owns its vectors, so it can be rewritten in place as a scratch ray
+        public Ray() { this(new Vec3(0, 0, 0), new Vec3(0, 0, 0)); }
+        Ray set(Ray r) { origin.set(r.origin); direction.set(r.direction); return this; }
     }
 
+    // Reused across bounces: p and normal are written in place by the hit routines
     static class HitRecord {
-        public Vec3 p;
-        public Vec3 normal;
+        public final Vec3 p = new Vec3(0, 0, 0);
+        public final Vec3 normal = new Vec3(0, 0, 0);
         public Material mat;
         public double t;
         public boolean frontFace;
 
+        // BVH traversal stack, carried here so a reused record makes hit() allocation-free.
+        // Nested BVHs push above stackTop.
+        int[] stack = new int[64];
+        int stackTop;
+
         public void setFaceNormal(Ray r, Vec3 outwardNormal) {
             frontFace = Vec3.dot(r.direction, outwardNormal) < 0;
-            normal = frontFace ? outwardNormal : Vec3.mult(outwardNormal, -1);
+            normal.set(outwardNormal);
+            if (!frontFace) normal.multLocal(-1);
         }
     }
 
     interface Hittable {
+        // Implementations only write rec when they report a hit closer than tMax
         boolean hit(Ray r, double tMin, double tMax, HitRecord rec);
+        AABB boundingBox();
     }
 
     static class Sphere implements Hittable {
@@ -265,10 +914,11 @@ public class RayTracer extends JFrame {
         }
 
         public boolean hit(Ray r, double tMin, double tMax, HitRecord rec) {
-            Vec3 oc = Vec3.sub(r.origin, center);
-            double a = r.direction.lengthSquared();
-            double halfB = Vec3.dot(oc, r.direction);
-            double c = oc.lengthSquared() - radius*radius;
+            Vec3 d = r.direction;
+            double ocx = r.origin.x - center.x, ocy = r.origin.y - center.y, ocz = r.origin.z - center.z;
+            double a = d.lengthSquared();
+            double halfB = ocx * d.x + ocy * d.y + ocz * d.z;
+            double c = ocx*ocx + ocy*ocy + ocz*ocz - radius*radius;
             double discriminant = halfB*halfB - a*c;
             if (discriminant < 0) return false;
             double sqrtd = Math.sqrt(discriminant);
@@ -280,12 +930,20 @@ public class RayTracer extends JFrame {
             }
 
             rec.t = root;
-            rec.p = r.at(rec.t);
-            Vec3 outwardNormal = Vec3.mult(Vec3.sub(rec.p, center), 1.0/radius);
-            rec.setFaceNormal(r, outwardNormal);
+            Vec3 p = rec.p.set(r.origin.x + d.x * root, r.origin.y + d.y * root, r.origin.z + d.z * root);
+            double inv = 1.0/radius;
+            double nx = (p.x - center.x) * inv, ny = (p.y - center.y) * inv, nz = (p.z - center.z) * inv;
+            rec.frontFace = d.x * nx + d.y * ny + d.z * nz < 0;
+            if (rec.frontFace) rec.normal.set(nx, ny, nz);
+            else rec.normal.set(-nx, -ny, -nz);
             rec.mat = mat;
             return true;
         }
+
+        public AABB boundingBox() {
+            double r = Math.abs(radius); // Negative radius = inward-facing shell
+            return new AABB(center.x - r, center.y - r, center.z - r, center.x + r, center.y + r, center.z + r);
+        }
     }
 
     static class HittableList implements Hittable {
@@ -293,24 +951,267 @@ public class RayTracer extends JFrame {
         public void add(Hittable object) { objects.add(object); }
 
         public boolean hit(Ray r, double tMin, double tMax, HitRecord rec) {
-            HitRecord tempRec = new HitRecord();
             boolean hitAnything = false;
             double closestSoFar = tMax;
 
-            for (Hittable object : objects) {
-                if (object.hit(r, tMin, closestSoFar, tempRec)) {
+            // Objects only write rec on a closer hit, so no temporary record is needed
+            for (int i = 0, n = objects.size(); i < n; i++) {
+                if (objects.get(i).hit(r, tMin, closestSoFar, rec)) {
                     hitAnything = true;
-                    closestSoFar = tempRec.t;
-                    // Copy to main record
-                    rec.p = tempRec.p;
-                    rec.normal = tempRec.normal;
-                    rec.t = tempRec.t;
-                    rec.frontFace = tempRec.frontFace;
-                    rec.mat = tempRec.mat;
+                    closestSoFar = rec.t;
                 }
             }
             return hitAnything;
         }
+
+        public AABB boundingBox() {
+            AABB box = null;
+            for (Hittable object : objects) box = AABB.union(box, object.boundingBox());
+            return box != null ? box : new AABB(0, 0, 0, 0, 0, 0);
+        }
+    }
+
+    // --- ACCELERATION ---
+
+    static class AABB {
+        final double minX, minY, minZ, maxX, maxY, maxZ;
+
+        AABB(double minX, double minY, double minZ, double maxX, double maxY, double maxZ) {
+            this.minX = minX; this.minY = minY; this.minZ = minZ;
+            this.maxX = maxX; this.maxY = maxY; this.maxZ = maxZ;
+        }
+
+        static AABB union(AABB a, AABB b) {
+            if (a == null) return b;
+            return new AABB(Math.min(a.minX, b.minX), Math.min(a.minY, b.minY), Math.min(a.minZ, b.minZ),
+                            Math.max(a.maxX, b.maxX), Math.max(a.maxY, b.maxY), Math.max(a.maxZ, b.maxZ));
+        }
+    }
+
+    /**
+     * Bounding volume hierarchy over any Hittables, usable anywhere a Hittable is.
+     * Built top-down with binned SAH (12 bins per axis over primitive centroids) and stored
+     * depth-first in flat arrays: a node's left child is the next node, interior nodes keep the
+     * index of their right child, leaves keep a range into the reordered primitive array.
+     * Traversal is iterative with a fixed stack, nearer child first along the split axis.
+     */
+    static class BVH implements Hittable {
+        private static final int BINS = 12;
+        private static final int MAX_LEAF = 4;
+        private static final int MAX_DEPTH = 48;           // Deeper ranges become leaves; bounds the stack
+        private static final double TRAVERSAL_COST = 0.5;  // Relative to one primitive test
+
+        private final Hittable[] prims;
+        private double[] bounds;  // 6 per node: min xyz, max xyz
+        private int[] offset;     // Interior: right child. Leaf: first primitive
+        private int[] count;      // 0 = interior
+        private byte[] axis;      // Split axis of interior nodes
+        private int nodes;
+
+        final long buildNanos;
+
+        // Build scratch
+        private double[] primBounds, centroids;
+        private int[] order;
+        private final int[] binCount = new int[BINS];
+        private final double[] binBounds = new double[BINS * 6];
+        private final double[] rightArea = new double[BINS];
+
+        BVH(List<Hittable> objects) {
+            long start = System.nanoTime();
+            int n = objects.size();
+            prims = new Hittable[n];
+            primBounds = new double[n * 6];
+            centroids = new double[n * 3];
+            order = new int[n];
+            for (int i = 0; i < n; i++) {
+                AABB b = objects.get(i).boundingBox();
+                primBounds[i * 6] = b.minX; primBounds[i * 6 + 1] = b.minY; primBounds[i * 6 + 2] = b.minZ;
+                primBounds[i * 6 + 3] = b.maxX; primBounds[i * 6 + 4] = b.maxY; primBounds[i * 6 + 5] = b.maxZ;
+                for (int a = 0; a < 3; a++) centroids[i * 3 + a] = 0.5 * (primBounds[i * 6 + a] + primBounds[i * 6 + 3 + a]);
+                order[i] = i;
+            }
+            int capacity = Math.max(1, 2 * n - 1);
+            bounds = new double[capacity * 6];
+            offset = new int[capacity];
+            count = new int[capacity];
+            axis = new byte[capacity];
+            if (n > 0) build(0, n, 0);
+
+            for (int i = 0; i < n; i++) prims[i] = objects.get(order[i]);
+            primBounds = centroids = null;
+            order = null;
+            buildNanos = System.nanoTime() - start;
+        }
+
+        int nodeCount() { return nodes; }
+
+        private int build(int from, int to, int depth) {
+            int node = nodes++;
+            double[] nb = new double[] {Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY,
+                                        Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY};
+            double[] cMin = {Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY};
+            double[] cMax = {Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY};
+            for (int k = from; k < to; k++) {
+                int p = order[k];
+                grow(nb, 0, primBounds, p * 6);
+                for (int a = 0; a < 3; a++) {
+                    cMin[a] = Math.min(cMin[a], centroids[p * 3 + a]);
+                    cMax[a] = Math.max(cMax[a], centroids[p * 3 + a]);
+                }
+            }
+            System.arraycopy(nb, 0, bounds, node * 6, 6);
+
+            int n = to - from;
+            if (n <= MAX_LEAF || depth >= MAX_DEPTH) return leaf(node, from, n);
+
+            // Binned SAH: evaluate BINS - 1 planes per axis, keep the cheapest
+            double parentArea = area(nb, 0);
+            double bestCost = Double.POSITIVE_INFINITY;
+            int bestAxis = -1, bestSplit = -1;
+            for (int a = 0; a < 3; a++) {
+                double extent = cMax[a] - cMin[a];
+                if (extent <= 1e-12) continue;
+                Arrays.fill(binCount, 0);
+                for (int b = 0; b < BINS; b++) resetBox(binBounds, b * 6);
+                double k1 = BINS / extent;
+                for (int k = from; k < to; k++) {
+                    int p = order[k];
+                    int b = Math.min(BINS - 1, (int) ((centroids[p * 3 + a] - cMin[a]) * k1));
+                    binCount[b]++;
+                    grow(binBounds, b * 6, primBounds, p * 6);
+                }
+                // Sweep from the right to get the area of everything right of each plane
+                double[] box = {0, 0, 0, 0, 0, 0};
+                resetBox(box, 0);
+                for (int b = BINS - 1; b > 0; b--) {
+                    if (binCount[b] > 0) grow(box, 0, binBounds, b * 6);
+                    rightArea[b] = area(box, 0);
+                }
+                resetBox(box, 0);
+                int leftCount = 0;
+                for (int b = 0; b < BINS - 1; b++) {
+                    if (binCount[b] > 0) grow(box, 0, binBounds, b * 6);
+                    leftCount += binCount[b];
+                    int rightCount = n - leftCount;
+                    if (leftCount == 0 || rightCount == 0) continue;
+                    double cost = TRAVERSAL_COST + (area(box, 0) * leftCount + rightArea[b + 1] * rightCount) / parentArea;
+                    if (cost < bestCost) {
+                        bestCost = cost;
+                        bestAxis = a;
+                        bestSplit = b + 1;
+                    }
+                }
+            }
+            if (bestAxis < 0 || bestCost >= n) return leaf(node, from, n);
+
+            // Partition the range around the chosen plane
+            double k1 = BINS / (cMax[bestAxis] - cMin[bestAxis]);
+            int i = from, j = to - 1;
+            while (i <= j) {
+                int p = order[i];
+                int b = Math.min(BINS - 1, (int) ((centroids[p * 3 + bestAxis] - cMin[bestAxis]) * k1));
+                if (b < bestSplit) {
+                    i++;
+                } else {
+                    order[i] = order[j];
+                    order[j--] = p;
+                }
+            }
+
+            axis[node] = (byte) bestAxis;
+            build(from, i, depth + 1);
+            offset[node] = build(i, to, depth + 1);
+            return node;
+        }
+
+        private int leaf(int node, int from, int n) {
+            offset[node] = from;
+            count[node] = n;
+            return node;
+        }
+
+        private static void resetBox(double[] box, int o) {
+            box[o] = box[o + 1] = box[o + 2] = Double.POSITIVE_INFINITY;
+            box[o + 3] = box[o + 4] = box[o + 5] = Double.NEGATIVE_INFINITY;
+        }
+
+        private static void grow(double[] box, int o, double[] src, int s) {
+            for (int a = 0; a < 3; a++) {
+                box[o + a] = Math.min(box[o + a], src[s + a]);
+                box[o + 3 + a] = Math.max(box[o + 3 + a], src[s + 3 + a]);
+            }
+        }
+
+        private static double area(double[] box, int o) {
+            double dx = box[o + 3] - box[o], dy = box[o + 4] - box[o + 1], dz = box[o + 5] - box[o + 2];
+            if (dx < 0) return 0;
+            return 2 * (dx * dy + dy * dz + dz * dx);
+        }
+
+        public boolean hit(Ray r, double tMin, double tMax, HitRecord rec) {
+            if (nodes == 0) return false;
+            double ox = r.origin.x, oy = r.origin.y, oz = r.origin.z;
+            double ix = 1.0 / r.direction.x, iy = 1.0 / r.direction.y, iz = 1.0 / r.direction.z;
+            boolean negX = ix < 0, negY = iy < 0, negZ = iz < 0;
+
+            int base = rec.stackTop;
+            if (rec.stack.length < base + MAX_DEPTH + 1) rec.stack = Arrays.copyOf(rec.stack, base + 2 * (MAX_DEPTH + 1));
+            int[] stack = rec.stack;
+            int sp = base, node = 0;
+            boolean hitAnything = false;
+            double closestSoFar = tMax;
+
+            while (true) {
+                int b = node * 6;
+                // Slab test
+                double t0 = tMin, t1 = closestSoFar;
+                double ta = ((negX ? bounds[b + 3] : bounds[b]) - ox) * ix, tb = ((negX ? bounds[b] : bounds[b + 3]) - ox) * ix;
+                if (ta > t0) t0 = ta;
+                if (tb < t1) t1 = tb;
+                ta = ((negY ? bounds[b + 4] : bounds[b + 1]) - oy) * iy; tb = ((negY ? bounds[b + 1] : bounds[b + 4]) - oy) * iy;
+                if (ta > t0) t0 = ta;
+                if (tb < t1) t1 = tb;
+                ta = ((negZ ? bounds[b + 5] : bounds[b + 2]) - oz) * iz; tb = ((negZ ? bounds[b + 2] : bounds[b + 5]) - oz) * iz;
+                if (ta > t0) t0 = ta;
+                if (tb < t1) t1 = tb;
+
+                if (t0 <= t1) {
+                    int c = count[node];
+                    if (c > 0) {
+                        // Primitives only write rec when they report a closer hit
+                        rec.stackTop = sp;
+                        for (int k = offset[node], end = offset[node] + c; k < end; k++) {
+                            if (prims[k].hit(r, tMin, closestSoFar, rec)) {
+                                hitAnything = true;
+                                closestSoFar = rec.t;
+                            }
+                        }
+                    } else {
+                        int a = axis[node];
+                        boolean neg = a == 0 ? negX : a == 1 ? negY : negZ;
+                        int left = node + 1, right = offset[node];
+                        if (neg) {
+                            stack[sp++] = left;
+                            node = right;
+                        } else {
+                            stack[sp++] = right;
+                            node = left;
+                        }
+                        continue;
+                    }
+                }
+                if (sp == base) break;
+                node = stack[--sp];
+            }
+            rec.stackTop = base;
+            return hitAnything;
+        }
+
+        public AABB boundingBox() {
+            if (nodes == 0) return new AABB(0, 0, 0, 0, 0, 0);
+            return new AABB(bounds[0], bounds[1], bounds[2], bounds[3], bounds[4], bounds[5]);
+        }
     }
 
     // --- CAMERA ---
@@ -343,33 +1244,34 @@ public class RayTracer extends JFrame {
             lowerLeftCorner = Vec3.sub(lowerLeftCorner, w);
         }
 
-        public Ray getRay(double s, double t) {
+        // Writes into a caller-owned ray
+        public Ray getRay(double s, double t, Ray out) {
             // rayDir = lowerLeft + s*horizontal + t*vertical - origin
-            Vec3 h = Vec3.mult(horizontal, s);
-            Vec3 v = Vec3.mult(vertical, t);
-            Vec3 target = Vec3.add(lowerLeftCorner, h);
-            target = Vec3.add(target, v);
-            return new Ray(origin, Vec3.sub(target, origin));
+            out.origin.set(origin);
+            out.direction.set(lowerLeftCorner.x + horizontal.x * s + vertical.x * t - origin.x,
+                              lowerLeftCorner.y + horizontal.y * s + vertical.y * t - origin.y,
+                              lowerLeftCorner.z + horizontal.z * s + vertical.z * t - origin.z);
+            return out;
         }
     }
 
     // --- MATERIALS ---
 
+    // Materials write into the caller's attenuation and scattered ray (which must not be rIn)
     interface Material {
-        boolean scatter(Ray rIn, HitRecord rec, Vec3 attenuation, Ray scattered);
+        boolean scatter(Ray rIn, HitRecord rec, Vec3 attenuation, Ray scattered, SplittableRandom rng);
     }
 
     static class Lambertian implements Material {
         public Vec3 albedo;
         public Lambertian(Vec3 a) { this.albedo = a; }
 
-        public boolean scatter(Ray rIn, HitRecord rec, Vec3 attenuation, Ray scattered) {
-            Vec3 scatterDirection = Vec3.add(rec.normal, Vec3.randomUnitVector());
-            if (scatterDirection.nearZero()) scatterDirection = rec.normal;
+        public boolean scatter(Ray rIn, HitRecord rec, Vec3 attenuation, Ray scattered, SplittableRandom rng) {
+            Vec3 scatterDirection = scattered.direction.setRandomInUnitSphere(rng).normalizeLocal().addLocal(rec.normal);
+            if (scatterDirection.nearZero()) scatterDirection.set(rec.normal);
 
-            scattered.origin = rec.p;
-            scattered.direction = scatterDirection;
-            attenuation.x = albedo.x; attenuation.y = albedo.y; attenuation.z = albedo.z;
+            scattered.origin.set(rec.p);
+            attenuation.set(albedo);
             return true;
         }
     }
@@ -379,12 +1281,18 @@ public class RayTracer extends JFrame {
         public double fuzz;
         public Metal(Vec3 a, double f) { this.albedo = a; this.fuzz = f < 1 ? f : 1; }
 
-        public boolean scatter(Ray rIn, HitRecord rec, Vec3 attenuation, Ray scattered) {
-            Vec3 reflected = Vec3.reflect(rIn.direction.unitVector(), rec.normal);
-            scattered.origin = rec.p;
-            scattered.direction = Vec3.add(reflected, Vec3.mult(Vec3.randomInUnitSphere(), fuzz));
-            attenuation.x = albedo.x; attenuation.y = albedo.y; attenuation.z = albedo.z;
-            return (Vec3.dot(scattered.direction, rec.normal) > 0);
+        public boolean scatter(Ray rIn, HitRecord rec, Vec3 attenuation, Ray scattered, SplittableRandom rng) {
+            Vec3 d = rIn.direction, n = rec.normal;
+            double inv = 1.0/d.length();
+            double ux = d.x * inv, uy = d.y * inv, uz = d.z * inv;
+            double k = 2 * (ux * n.x + uy * n.y + uz * n.z);
+
+            // reflected + fuzz * random point in the unit sphere
+            Vec3 dir = scattered.direction.setRandomInUnitSphere(rng);
+            dir.set(ux - n.x * k + dir.x * fuzz, uy - n.y * k + dir.y * fuzz, uz - n.z * k + dir.z * fuzz);
+            scattered.origin.set(rec.p);
+            attenuation.set(albedo);
+            return (Vec3.dot(dir, n) > 0);
         }
     }
 
@@ -392,26 +1300,33 @@ public class RayTracer extends JFrame {
         public double ir; // Index of Refraction
         public Dielectric(double index) { this.ir = index; }
 
-        public boolean scatter(Ray rIn, HitRecord rec, Vec3 attenuation, Ray scattered) {
+        public boolean scatter(Ray rIn, HitRecord rec, Vec3 attenuation, Ray scattered, SplittableRandom rng) {
             attenuation.x = 1.0; attenuation.y = 1.0; attenuation.z = 1.0;
             double refractionRatio = rec.frontFace ? (1.0 / ir) : ir;
 
-            Vec3 unitDirection = rIn.direction.unitVector();
+            Vec3 d = rIn.direction, n = rec.normal;
+            double inv = 1.0/d.length();
+            double ux = d.x * inv, uy = d.y * inv, uz = d.z * inv;
 
-            double cosTheta = Math.min(Vec3.dot(Vec3.mult(unitDirection, -1), rec.normal), 1.0);
+            double cosTheta = Math.min(-ux * n.x + -uy * n.y + -uz * n.z, 1.0);
             double sinTheta = Math.sqrt(1.0 - cosTheta*cosTheta);
 
             boolean cannotRefract = refractionRatio * sinTheta > 1.0;
-            Vec3 direction;
+            Vec3 direction = scattered.direction;
 
-            if (cannotRefract || reflectance(cosTheta, refractionRatio) > Math.random()) {
-                direction = Vec3.reflect(unitDirection, rec.normal);
+            if (cannotRefract || reflectance(cosTheta, refractionRatio) > rng.nextDouble()) {
+                double k = 2 * (ux * n.x + uy * n.y + uz * n.z);
+                direction.set(ux - n.x * k, uy - n.y * k, uz - n.z * k);
             } else {
-                direction = Vec3.refract(unitDirection, rec.normal, refractionRatio);
+                // Perpendicular part, then add the parallel part along the normal
+                direction.set((ux + n.x * cosTheta) * refractionRatio,
+                              (uy + n.y * cosTheta) * refractionRatio,
+                              (uz + n.z * cosTheta) * refractionRatio);
+                double parallel = -Math.sqrt(Math.abs(1.0 - direction.lengthSquared()));
+                direction.set(direction.x + n.x * parallel, direction.y + n.y * parallel, direction.z + n.z * parallel);
             }
 
-            scattered.origin = rec.p;
-            scattered.direction = direction;
+            scattered.origin.set(rec.p);
             return true;
         }
 
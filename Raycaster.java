@@ -7,7 +7,20 @@ import java.awt.event.KeyListener;
 import java.awt.image.BufferStrategy;
 import java.awt.image.BufferedImage;
 import java.awt.image.DataBufferInt;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Raycaster Engine (Wolfenstein 3D Style)
@@ -20,20 +33,29 @@ import java.util.ArrayList;
  * * Key Concepts:
  * - FOV (Field of View): Determined by the 'plane' vector.
  * - Fisheye Correction: Using perpendicular distance instead of Euclidean distance.
+ * - Strip-parallel: columns are independent, so the frame is split into vertical strips rendered
+ * by a persistent worker pool (see StripRenderer).
+ * - Textures: walls, floor and ceiling sample a packed 64x64 texture atlas (T toggles flat colours).
+ * - Large worlds: maps can live in a chunked file read through memory mapping (see ChunkedMap).
+ * * Usage: java Raycaster [WIDTHxHEIGHT] [threads] [world.rcw]   (default 640x480, one thread per core)
+ *          java Raycaster generate world.rcw [size] [seed]        (procedural world, default 65536)
  */
 public class Raycaster extends JFrame implements Runnable, KeyListener {
 
     // --- Constants ---
-    private static final int WIDTH = 640;
-    private static final int HEIGHT = 480;
+    private static final int DEFAULT_WIDTH = 640;
+    private static final int DEFAULT_HEIGHT = 480;
     private static final int TEXTURE_WIDTH = 64;
     private static final int TEXTURE_HEIGHT = 64;
 
     // --- Game State ---
     private Thread thread;
     private boolean running;
+    private final int width, height;
     private BufferedImage image;
     private int[] pixels;
+    private final StripRenderer renderer;
+    private double frameMs, fps;
 
     // --- Player Vectors ---
     // Position
@@ -52,7 +74,7 @@ public class Raycaster extends JFrame implements Runnable, KeyListener {
 
     // --- Map (1 = Wall, 0 = Empty) ---
     // 24x24 grid
-    private int[][] worldMap = {
+    static final int[][] DEFAULT_MAP = {
             {1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1},
             {1,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,1},
             {1,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,1},
@@ -78,13 +100,31 @@ public class Raycaster extends JFrame implements Runnable, KeyListener {
             {1,4,4,4,4,4,4,4,4,0,0,0,0,0,0,0,0,0,0,0,0,0,0,1},
             {1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1}
     };
+    private final WorldMap worldMap;
+    private final WorldMap.Reader mapReader; // For collisions on the game thread
 
     public Raycaster() {
+        this(DEFAULT_WIDTH, DEFAULT_HEIGHT, Runtime.getRuntime().availableProcessors(), new ArrayMap(DEFAULT_MAP));
+    }
+
+    public Raycaster(int width, int height, int threads, WorldMap worldMap) {
+        this.width = width;
+        this.height = height;
+        this.worldMap = worldMap;
+        this.mapReader = worldMap.reader();
+        if (worldMap instanceof ChunkedMap) {
+            posX = ((ChunkedMap) worldMap).spawnX;
+            posY = ((ChunkedMap) worldMap).spawnY;
+        }
         thread = new Thread(this);
-        image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+        image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
         pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        renderer = new StripRenderer(width, height, pixels, worldMap, threads);
 
-        setSize(WIDTH, HEIGHT);
+        // Large render resolutions are scaled down to fit the screen
+        Dimension screen = Toolkit.getDefaultToolkit().getScreenSize();
+        double scale = Math.min(1.0, Math.min(screen.width * 0.9 / width, screen.height * 0.9 / height));
+        setSize((int) (width * scale), (int) (height * scale));
         setResizable(false);
         setTitle("Raycaster (Java)");
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
@@ -137,15 +177,15 @@ public class Raycaster extends JFrame implements Runnable, KeyListener {
     private void update() {
         // MOVEMENT
         if (keyUp) {
-            if (worldMap[(int)(posX + dirX * moveSpeed)][(int)posY] == 0)
+            if (mapReader.get((int)(posX + dirX * moveSpeed), (int)posY) == 0)
                 posX += dirX * moveSpeed;
-            if (worldMap[(int)posX][(int)(posY + dirY * moveSpeed)] == 0)
+            if (mapReader.get((int)posX, (int)(posY + dirY * moveSpeed)) == 0)
                 posY += dirY * moveSpeed;
         }
         if (keyDown) {
-            if (worldMap[(int)(posX - dirX * moveSpeed)][(int)posY] == 0)
+            if (mapReader.get((int)(posX - dirX * moveSpeed), (int)posY) == 0)
                 posX -= dirX * moveSpeed;
-            if (worldMap[(int)posX][(int)(posY - dirY * moveSpeed)] == 0)
+            if (mapReader.get((int)posX, (int)(posY - dirY * moveSpeed)) == 0)
                 posY -= dirY * moveSpeed;
         }
 
@@ -178,119 +218,572 @@ public class Raycaster extends JFrame implements Runnable, KeyListener {
             return;
         }
 
-        // Clear screen (Draw Floor and Ceiling)
-        for(int i = 0; i < pixels.length / 2; i++) {
-            pixels[i] = 0x333333; // Dark Grey Ceiling
+        long t0 = System.nanoTime();
+        renderer.renderFrame(posX, posY, dirX, dirY, planeX, planeY);
+        long t1 = System.nanoTime();
+        frameMs = frameMs * 0.9 + (t1 - t0) / 1e6 * 0.1;
+
+        // Draw Buffer to Screen
+        Graphics g = bs.getDrawGraphics();
+        g.drawImage(image, 0, 0, getWidth(), getHeight(), null);
+
+        // UI Text
+        g.setColor(Color.WHITE);
+        g.drawString("Use WASD or Arrows to move, T toggles textures.", 20, 30);
+        g.drawString("X: " + String.format("%.2f", posX) + " Y: " + String.format("%.2f", posY), 20, 50);
+        g.drawString(String.format("%dx%d, %d threads: %.2f ms/frame cast, %.0f fps", width, height,
+                renderer.threads(), frameMs, fps), 20, 70);
+        if (worldMap instanceof ChunkedMap) {
+            ChunkedMap chunked = (ChunkedMap) worldMap;
+            g.drawString(String.format("World %dx%d: %d chunks cached, %d loaded", chunked.width(), chunked.height(),
+                    chunked.cachedChunks(), chunked.chunkLoads()), 20, 90);
+        }
+
+        g.dispose();
+        bs.show();
+        fps = fps * 0.9 + 1e9 / Math.max(1, System.nanoTime() - t0) * 0.1;
+    }
+
+    /**
+     * Column caster shared by the window and the benchmarks.
+     * Columns are independent, so the frame is cut into vertical strips of STRIP columns. The
+     * worker threads are created once. Every frame the calling thread publishes the camera, releases
+     * the workers through a Phaser, takes strips itself until none are left, then waits on the same
+     * Phaser for the others. Strips are handed out from an atomic counter, so threads that draw
+     * cheap columns pick up more. Each strip writes its columns straight into the shared pixels.
+     */
+    static class StripRenderer implements AutoCloseable {
+        static final int STRIP = 32; // Columns per strip
+        static final int MAX_RAY_STEPS = 1024; // Beyond this a wall would be ~1px tall; draw open space
+        private static final int CEILING = 0x333333; // Dark Grey Ceiling
+        private static final int FLOOR = 0x555555;   // Lighter Grey Floor
+
+        final int width, height;
+        final int[] pixels;
+        private final WorldMap.Reader[] readers; // One per thread, index 0 = calling thread
+        private final TextureAtlas atlas;
+        private final int[] wallTop, wallBottom; // Wall span per column, for the floor/ceiling pass
+        volatile boolean textured = true;
+        private final int strips;
+        private final Phaser phaser;
+        private final Thread[] workers;
+        private final AtomicInteger nextStrip = new AtomicInteger();
+        private volatile Throwable failure; // First exception thrown by any thread; ends the renderer
+
+        // Camera of the frame in flight; the Phaser barrier publishes it to the workers
+        private double posX, posY, dirX, dirY, planeX, planeY;
+        private boolean frameTextured;
+
+        StripRenderer(int width, int height, int[] pixels, int[][] worldMap, int threads) {
+            this(width, height, pixels, new ArrayMap(worldMap), threads);
+        }
+
+        StripRenderer(int width, int height, int[] pixels, WorldMap worldMap, int threads) {
+            this.width = width;
+            this.height = height;
+            this.pixels = pixels;
+            this.atlas = TextureAtlas.generate();
+            this.wallTop = new int[width];
+            this.wallBottom = new int[width];
+            this.strips = (width + STRIP - 1) / STRIP;
+            threads = Math.max(1, threads);
+
+            readers = new WorldMap.Reader[threads];
+            for (int i = 0; i < threads; i++) readers[i] = worldMap.reader();
+
+            // One party per worker plus the calling thread
+            phaser = new Phaser(threads);
+            workers = new Thread[threads - 1];
+            for (int i = 0; i < workers.length; i++) {
+                WorldMap.Reader reader = readers[i + 1];
+                workers[i] = new Thread(() -> workerLoop(reader), "raycaster-strips-" + i);
+                workers[i].setDaemon(true);
+                workers[i].start();
+            }
         }
-        for(int i = pixels.length / 2; i < pixels.length; i++) {
-            pixels[i] = 0x555555; // Lighter Grey Floor
+
+        int threads() { return workers.length + 1; }
+
+        private void workerLoop(WorldMap.Reader reader) {
+            try {
+                while (true) {
+                    if (phaser.arriveAndAwaitAdvance() < 0) return; // Frame start (negative = closed)
+                    renderStrips(reader);
+                    if (phaser.arriveAndAwaitAdvance() < 0) return; // Frame done
+                }
+            } catch (Throwable t) {
+                fail(t);
+            }
         }
 
-        // --- RAYCASTING LOOP ---
-        for (int x = 0; x < WIDTH; x++) {
-            // 1. Calculate ray position and direction
-            double cameraX = 2 * x / (double)WIDTH - 1; // x-coordinate in camera space
-            double rayDirX = dirX + planeX * cameraX;
-            double rayDirY = dirY + planeY * cameraX;
-
-            // 2. Map position (which box of the map we're in)
-            int mapX = (int)posX;
-            int mapY = (int)posY;
-
-            // 3. Length of ray from one x or y-side to next x or y-side
-            double sideDistX;
-            double sideDistY;
-
-            // Delta distance calculation (avoid division by zero)
-            double deltaDistX = (rayDirX == 0) ? 1e30 : Math.abs(1 / rayDirX);
-            double deltaDistY = (rayDirY == 0) ? 1e30 : Math.abs(1 / rayDirY);
-            double perpWallDist;
-
-            // Step direction and initial sideDist
-            int stepX;
-            int stepY;
-            int hit = 0; // Was there a wall hit?
-            int side = 0; // Was a NS or a EW wall hit?
-
-            if (rayDirX < 0) {
-                stepX = -1;
-                sideDistX = (posX - mapX) * deltaDistX;
-            } else {
-                stepX = 1;
-                sideDistX = (mapX + 1.0 - posX) * deltaDistX;
+        void renderFrame(double posX, double posY, double dirX, double dirY, double planeX, double planeY) {
+            this.posX = posX; this.posY = posY;
+            this.dirX = dirX; this.dirY = dirY;
+            this.planeX = planeX; this.planeY = planeY;
+            this.frameTextured = textured; // One mode per frame even if toggled mid-frame
+            nextStrip.set(0);
+            try {
+                phaser.arriveAndAwaitAdvance(); // Release the workers
+                renderStrips(readers[0]);
+                phaser.arriveAndAwaitAdvance(); // Wait until every strip is drawn
+            } catch (Throwable t) {
+                fail(t);
             }
-            if (rayDirY < 0) {
-                stepY = -1;
-                sideDistY = (posY - mapY) * deltaDistY;
-            } else {
-                stepY = 1;
-                sideDistY = (mapY + 1.0 - posY) * deltaDistY;
+            if (phaser.isTerminated()) {
+                Throwable t = failure;
+                if (t instanceof RuntimeException) throw (RuntimeException) t;
+                if (t instanceof Error) throw (Error) t;
+                throw new IllegalStateException("Renderer is closed", t);
             }
+        }
+
+        // A thread that stops arriving would block the others forever, so end the Phaser for everyone
+        private void fail(Throwable t) {
+            if (failure == null) failure = t;
+            phaser.forceTermination();
+        }
 
-            // 4. Perform DDA (Digital Differential Analysis)
-            // Jump to next map square, OR in x-direction, OR in y-direction
-            while (hit == 0) {
-                if (sideDistX < sideDistY) {
-                    sideDistX += deltaDistX;
-                    mapX += stepX;
-                    side = 0;
+        private void renderStrips(WorldMap.Reader worldMap) {
+            int s;
+            while ((s = nextStrip.getAndIncrement()) < strips) {
+                renderColumns(s * STRIP, Math.min(width, (s + 1) * STRIP), worldMap);
+            }
+        }
+
+        // --- RAYCASTING LOOP ---
+        void renderColumns(int x0, int x1, WorldMap.Reader worldMap) {
+            for (int x = x0; x < x1; x++) {
+                // 1. Calculate ray position and direction
+                double cameraX = 2 * x / (double)width - 1; // x-coordinate in camera space
+                double rayDirX = dirX + planeX * cameraX;
+                double rayDirY = dirY + planeY * cameraX;
+
+                // 2. Map position (which box of the map we're in)
+                int mapX = (int)posX;
+                int mapY = (int)posY;
+
+                // 3. Length of ray from one x or y-side to next x or y-side
+                double sideDistX;
+                double sideDistY;
+
+                // Delta distance calculation (avoid division by zero)
+                double deltaDistX = (rayDirX == 0) ? 1e30 : Math.abs(1 / rayDirX);
+                double deltaDistY = (rayDirY == 0) ? 1e30 : Math.abs(1 / rayDirY);
+                double perpWallDist;
+
+                // Step direction and initial sideDist
+                int stepX;
+                int stepY;
+                int hit = 0; // Was there a wall hit?
+                int side = 0; // Was a NS or a EW wall hit?
+                int cell = 0; // Map value of the wall hit
+                int steps = 0;
+
+                if (rayDirX < 0) {
+                    stepX = -1;
+                    sideDistX = (posX - mapX) * deltaDistX;
                 } else {
-                    sideDistY += deltaDistY;
-                    mapY += stepY;
-                    side = 1;
+                    stepX = 1;
+                    sideDistX = (mapX + 1.0 - posX) * deltaDistX;
+                }
+                if (rayDirY < 0) {
+                    stepY = -1;
+                    sideDistY = (posY - mapY) * deltaDistY;
+                } else {
+                    stepY = 1;
+                    sideDistY = (mapY + 1.0 - posY) * deltaDistY;
+                }
+
+                // 4. Perform DDA (Digital Differential Analysis)
+                // Jump to next map square, OR in x-direction, OR in y-direction
+                while (hit == 0) {
+                    if (sideDistX < sideDistY) {
+                        sideDistX += deltaDistX;
+                        mapX += stepX;
+                        side = 0;
+                    } else {
+                        sideDistY += deltaDistY;
+                        mapY += stepY;
+                        side = 1;
+                    }
+                    // Check if ray has hit a wall
+                    cell = worldMap.get(mapX, mapY);
+                    if (cell > 0) hit = 1;
+                    else if (++steps >= MAX_RAY_STEPS) break;
+                }
+
+                // 5. Calculate distance projected on camera direction
+                // (Euclidean distance will give fisheye effect!)
+                if (side == 0)
+                    perpWallDist = (sideDistX - deltaDistX);
+                else
+                    perpWallDist = (sideDistY - deltaDistY);
+
+                // 6. Calculate height of line to draw on screen
+                int lineHeight = hit == 0 ? 0 : (int) (height / perpWallDist);
+
+                // Calculate lowest and highest pixel to fill in current stripe
+                int drawStart = -lineHeight / 2 + height / 2;
+                if (drawStart < 0) drawStart = 0;
+                int drawEnd = lineHeight / 2 + height / 2;
+                if (drawEnd >= height) drawEnd = height - 1;
+
+                if (frameTextured) {
+                    drawTexturedWall(x, rayDirX, rayDirY, perpWallDist, side, cell, lineHeight, drawStart, drawEnd);
+                    continue;
+                }
+
+                // 7. Choose Wall Color
+                int color;
+                switch(cell) {
+                    case 1:  color = 0xFF0000; break; // Red
+                    case 2:  color = 0x00FF00; break; // Green
+                    case 3:  color = 0x0000FF; break; // Blue
+                    case 4:  color = 0xFFFFFF; break; // White
+                    default: color = 0xFFFF00; break; // Yellow
+                }
+
+                // Give x and y sides different brightness for pseudo-lighting
+                if (side == 1) {
+                    color = (color >> 1) & 8355711; // Dim the color by bit shifting
+                }
+
+                // 8. Draw the whole column in one pass: ceiling above the wall, floor below it.
+                // drawStart <= height/2 <= drawEnd, so this matches clearing each half first.
+                int p = x;
+                for (int y = 0; y < drawStart; y++, p += width) pixels[p] = CEILING;
+                for (int y = drawStart; y < drawEnd; y++, p += width) pixels[p] = color;
+                for (int y = drawEnd; y < height; y++, p += width) pixels[p] = FLOOR;
+            }
+            if (frameTextured) drawFloorAndCeiling(x0, x1);
+        }
+
+        // Texture column for the wall hit, from the hit point along the wall face (Lode's method)
+        private void drawTexturedWall(int x, double rayDirX, double rayDirY, double perpWallDist, int side,
+                                      int wallType, int lineHeight, int drawStart, int drawEnd) {
+            double wallX = side == 0 ? posY + perpWallDist * rayDirY : posX + perpWallDist * rayDirX;
+            wallX -= Math.floor(wallX);
+            int texX = (int) (wallX * TextureAtlas.SIZE);
+            if (side == 0 && rayDirX > 0) texX = TextureAtlas.MASK - texX;
+            if (side == 1 && rayDirY < 0) texX = TextureAtlas.MASK - texX;
+
+            // Walls 1..4 have their own texture, anything else uses the last wall texture
+            int[] tex = side == 1 ? atlas.shaded : atlas.texels;
+            int column = TextureAtlas.base(Math.max(1, Math.min(wallType, TextureAtlas.WALLS)) - 1) + ((texX & TextureAtlas.MASK) << TextureAtlas.SHIFT);
+
+            // Texture rows per screen row, starting where the (possibly clipped) wall begins
+            double step = (double) TextureAtlas.SIZE / lineHeight;
+            double texPos = (drawStart - height / 2 + lineHeight / 2) * step;
+            int p = x + drawStart * width;
+            for (int y = drawStart; y < drawEnd; y++, p += width) {
+                pixels[p] = tex[column + ((int) texPos & TextureAtlas.MASK)];
+                texPos += step;
+            }
+            wallTop[x] = drawStart;
+            wallBottom[x] = drawEnd;
+        }
+
+        /**
+         * Row-based floor casting: every screen row below the horizon sees the floor at one
+         * distance, so the floor position only needs a start and a constant step per row. The
+         * ceiling is the same row mirrored. Pixels covered by the wall of their column are skipped.
+         */
+        private void drawFloorAndCeiling(int x0, int x1) {
+            double rayDirX0 = dirX - planeX, rayDirY0 = dirY - planeY;
+            double rayDirX1 = dirX + planeX, rayDirY1 = dirY + planeY;
+            double posZ = 0.5 * height;
+            int floorBase = TextureAtlas.base(TextureAtlas.FLOOR), ceilingBase = TextureAtlas.base(TextureAtlas.CEILING);
+            int[] texels = atlas.texels;
+
+            for (int y = height / 2; y < height; y++) {
+                double rowDistance = posZ / (y - height / 2 + 0.5); // Pixel centre, never on the horizon
+                double stepX = rowDistance * (rayDirX1 - rayDirX0) / width;
+                double stepY = rowDistance * (rayDirY1 - rayDirY0) / width;
+                double floorX = posX + rowDistance * rayDirX0 + stepX * x0;
+                double floorY = posY + rowDistance * rayDirY0 + stepY * x0;
+                int mirror = height - 1 - y;
+                int row = y * width, mirrorRow = mirror * width;
+
+                for (int x = x0; x < x1; x++, floorX += stepX, floorY += stepY) {
+                    boolean floor = y >= wallBottom[x], ceiling = mirror < wallTop[x];
+                    if (!floor && !ceiling) continue;
+                    int tx = (int) (floorX * TextureAtlas.SIZE) & TextureAtlas.MASK;
+                    int ty = (int) (floorY * TextureAtlas.SIZE) & TextureAtlas.MASK;
+                    int texel = (tx << TextureAtlas.SHIFT) + ty;
+                    if (floor) pixels[row + x] = texels[floorBase + texel];
+                    if (ceiling) pixels[mirrorRow + x] = texels[ceilingBase + texel];
+                }
+            }
+        }
+
+        @Override
+        public void close() {
+            phaser.forceTermination();
+        }
+    }
+
+    // --- World maps ---
+
+    /** Cell lookup for the DDA. Cells outside the map read as wall, so rays always stop. */
+    interface WorldMap {
+        int width();
+        int height();
+        // Readers may cache per-thread state; the renderer gives each thread its own
+        Reader reader();
+
+        interface Reader {
+            int get(int x, int y);
+        }
+    }
+
+    // Heap map, indexed [x][y] like the original worldMap
+    static class ArrayMap implements WorldMap, WorldMap.Reader {
+        private final int[][] cells;
+
+        ArrayMap(int[][] cells) { this.cells = cells; }
+
+        public int width() { return cells.length; }
+        public int height() { return cells[0].length; }
+        public Reader reader() { return this; }
+
+        public int get(int x, int y) {
+            if (x < 0 || y < 0 || x >= cells.length || y >= cells[x].length) return 1;
+            return cells[x][y];
+        }
+    }
+
+    /**
+     * World stored on disk as fixed 64x64-cell chunks, one byte per cell (0 = empty, 1..255 = wall
+     * type), read through memory-mapped segments of the file. Nothing proportional to the world is
+     * on the heap: chunks the DDA touches are copied into a small LRU cache of byte[4096], and each
+     * Reader remembers its last chunk, so consecutive steps inside one chunk skip the cache.
+     * * File layout (little-endian):
+     * - 64-byte header: magic, version, width, height, chunk shift, spawn x/y.
+     * - Chunks in row-major chunk order (cy * chunksX + cx), cells inside a chunk as [x][y].
+     * A 65536 x 65536 world is 1M chunks, a 4 GiB file.
+     */
+    static class ChunkedMap implements WorldMap, Closeable {
+        static final int CHUNK_SHIFT = 6;
+        static final int CHUNK = 1 << CHUNK_SHIFT;          // Cells per chunk side
+        static final int CHUNK_MASK = CHUNK - 1;
+        static final int CHUNK_BYTES = CHUNK * CHUNK;       // One 4 KiB page
+        static final int DEFAULT_CACHE_CHUNKS = 256;        // 1 MiB of heap
+        private static final long MAGIC = 0x31444C524F574352L; // "RCWORLD1"
+        private static final int VERSION = 1;
+        private static final int HEADER_BYTES = 64;
+        private static final long SEGMENT_BYTES = 1L << 30; // Whole chunks per mapped segment
+
+        private final FileChannel channel;
+        private final int width, height, chunksX;
+        final double spawnX, spawnY;
+        private final MappedByteBuffer[] segments;
+        private final LinkedHashMap<Long, byte[]> cache;
+        private long chunkLoads;
+
+        private ChunkedMap(FileChannel channel, int width, int height, double spawnX, double spawnY, int cacheChunks) {
+            this.channel = channel;
+            this.width = width;
+            this.height = height;
+            this.chunksX = width >> CHUNK_SHIFT;
+            this.spawnX = spawnX;
+            this.spawnY = spawnY;
+            long dataBytes = (long) chunksX * (height >> CHUNK_SHIFT) * CHUNK_BYTES;
+            this.segments = new MappedByteBuffer[(int) ((dataBytes + SEGMENT_BYTES - 1) / SEGMENT_BYTES)];
+            this.cache = new LinkedHashMap<Long, byte[]>(cacheChunks * 2, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Long, byte[]> eldest) {
+                    return size() > cacheChunks;
                 }
-                // Check if ray has hit a wall
-                if (worldMap[mapX][mapY] > 0) hit = 1;
+            };
+        }
+
+        static ChunkedMap open(Path path, int cacheChunks) throws IOException {
+            FileChannel ch = FileChannel.open(path, StandardOpenOption.READ);
+            try {
+                ByteBuffer h = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+                ch.read(h, 0);
+                if (h.getLong(0) != MAGIC) throw new IOException("Not a raycaster world: " + path);
+                if (h.getInt(8) != VERSION || h.getInt(20) != CHUNK_SHIFT) throw new IOException("Unsupported world version in " + path);
+                int w = h.getInt(12), hgt = h.getInt(16);
+                if (w <= 0 || hgt <= 0 || (w & CHUNK_MASK) != 0 || (hgt & CHUNK_MASK) != 0) throw new IOException("Bad world size " + w + "x" + hgt);
+                if (ch.size() != HEADER_BYTES + (long) w * hgt) throw new IOException("Truncated or corrupt world: " + path);
+                return new ChunkedMap(ch, w, hgt, h.getDouble(24), h.getDouble(32), cacheChunks);
+            } catch (IOException e) {
+                ch.close();
+                throw e;
             }
+        }
+
+        public int width() { return width; }
+        public int height() { return height; }
+        synchronized int cachedChunks() { return cache.size(); }
+        synchronized long chunkLoads() { return chunkLoads; }
+
+        public Reader reader() {
+            return new Reader() {
+                private long lastKey = -1;
+                private byte[] last;
+
+                public int get(int x, int y) {
+                    if (x < 0 || y < 0 || x >= width || y >= height) return 1;
+                    long key = (long) (y >> CHUNK_SHIFT) * chunksX + (x >> CHUNK_SHIFT);
+                    if (key != lastKey) {
+                        last = chunk(key);
+                        lastKey = key;
+                    }
+                    return last[((x & CHUNK_MASK) << CHUNK_SHIFT) | (y & CHUNK_MASK)] & 0xFF;
+                }
+            };
+        }
 
-            // 5. Calculate distance projected on camera direction
-            // (Euclidean distance will give fisheye effect!)
-            if (side == 0)
-                perpWallDist = (sideDistX - deltaDistX);
-            else
-                perpWallDist = (sideDistY - deltaDistY);
-
-            // 6. Calculate height of line to draw on screen
-            int lineHeight = (int) (HEIGHT / perpWallDist);
-
-            // Calculate lowest and highest pixel to fill in current stripe
-            int drawStart = -lineHeight / 2 + HEIGHT / 2;
-            if (drawStart < 0) drawStart = 0;
-            int drawEnd = lineHeight / 2 + HEIGHT / 2;
-            if (drawEnd >= HEIGHT) drawEnd = HEIGHT - 1;
-
-            // 7. Choose Wall Color
-            int color;
-            switch(worldMap[mapX][mapY]) {
-                case 1:  color = 0xFF0000; break; // Red
-                case 2:  color = 0x00FF00; break; // Green
-                case 3:  color = 0x0000FF; break; // Blue
-                case 4:  color = 0xFFFFFF; break; // White
-                default: color = 0xFFFF00; break; // Yellow
+        // Evicted arrays are never reused: another thread's Reader may still hold one
+        private synchronized byte[] chunk(long key) {
+            byte[] chunk = cache.get(key);
+            if (chunk == null) {
+                chunk = new byte[CHUNK_BYTES];
+                long offset = key * CHUNK_BYTES;
+                ByteBuffer view = segment((int) (offset / SEGMENT_BYTES)).duplicate();
+                view.position((int) (offset % SEGMENT_BYTES));
+                view.get(chunk);
+                cache.put(key, chunk);
+                chunkLoads++;
             }
+            return chunk;
+        }
 
-            // Give x and y sides different brightness for pseudo-lighting
-            if (side == 1) {
-                color = (color >> 1) & 8355711; // Dim the color by bit shifting
+        private MappedByteBuffer segment(int index) {
+            if (segments[index] == null) {
+                long start = HEADER_BYTES + index * SEGMENT_BYTES;
+                long size = Math.min(SEGMENT_BYTES, (long) width * height - index * SEGMENT_BYTES);
+                try {
+                    segments[index] = channel.map(FileChannel.MapMode.READ_ONLY, start, size);
+                } catch (IOException e) {
+                    throw new java.io.UncheckedIOException(e);
+                }
             }
+            return segments[index];
+        }
 
-            // 8. Draw the vertical line to the buffer
-            for(int y = drawStart; y < drawEnd; y++) {
-                pixels[x + y * WIDTH] = color;
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+
+        /**
+         * Writes a procedural world chunk by chunk, so generation also never holds the whole map:
+         * 16x16 rooms with 4-cell doorways in the middle of each wall, a wall type per room,
+         * scattered pillars, and a solid border. The player spawns in the room nearest the centre.
+         */
+        static void generate(Path path, int width, int height, long seed) throws IOException {
+            width = (width + CHUNK_MASK) & ~CHUNK_MASK;
+            height = (height + CHUNK_MASK) & ~CHUNK_MASK;
+            long start = System.nanoTime();
+            double spawnX = (width / 2 & ~15) + 8.5, spawnY = (height / 2 & ~15) + 8.5;
+            try (FileChannel ch = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.WRITE)) {
+                ByteBuffer h = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+                h.putLong(0, MAGIC).putInt(8, VERSION).putInt(12, width).putInt(16, height).putInt(20, CHUNK_SHIFT)
+                 .putDouble(24, spawnX).putDouble(32, spawnY);
+                ch.write(h, 0);
+
+                // One row of chunks per write
+                int chunksX = width >> CHUNK_SHIFT;
+                ByteBuffer row = ByteBuffer.allocate(chunksX * CHUNK_BYTES);
+                byte[] cells = row.array();
+                for (int cy = 0; cy < height >> CHUNK_SHIFT; cy++) {
+                    for (int cx = 0; cx < chunksX; cx++) {
+                        int base = cx * CHUNK_BYTES;
+                        for (int lx = 0; lx < CHUNK; lx++) {
+                            for (int ly = 0; ly < CHUNK; ly++) {
+                                cells[base + (lx << CHUNK_SHIFT) + ly] =
+                                        (byte) proceduralCell(seed, (cx << CHUNK_SHIFT) + lx, (cy << CHUNK_SHIFT) + ly, width, height);
+                            }
+                        }
+                    }
+                    row.clear();
+                    long offset = HEADER_BYTES + (long) cy * chunksX * CHUNK_BYTES;
+                    while (row.hasRemaining()) offset += ch.write(row, offset);
+                    if ((cy + 1) % 64 == 0) System.out.printf("chunk row %d/%d%n", cy + 1, height >> CHUNK_SHIFT);
+                }
             }
+            System.out.printf("Generated %dx%d world (%.1f MB) in %.1f s%n", width, height,
+                    (HEADER_BYTES + (double) width * height) / 1e6, (System.nanoTime() - start) / 1e9);
         }
 
-        // Draw Buffer to Screen
-        Graphics g = bs.getDrawGraphics();
-        g.drawImage(image, 0, 0, getWidth(), getHeight(), null);
+        static int proceduralCell(long seed, int x, int y, int width, int height) {
+            if (x == 0 || y == 0 || x == width - 1 || y == height - 1) return 1;
+            int rx = x & 15, ry = y & 15;
+            if (rx == 0 || ry == 0) {
+                int along = rx == 0 ? ry : rx;
+                if (along >= 6 && along <= 9) return 0; // Doorway
+                long room = mix(seed ^ (x >> 4) * 0x9E3779B97F4A7C15L ^ (y >> 4) * 0xC2B2AE3D27D4EB4FL);
+                return 1 + (int) ((room >>> 8) & 3);
+            }
+            if (rx >= 7 && rx <= 9 && ry >= 7 && ry <= 9) return 0; // Keep room centres (the spawn) clear
+            return (mix(seed ^ x * 0x165667B19E3779F9L ^ y * 0x27D4EB2F165667C5L) & 63) == 0 ? 5 : 0;
+        }
 
-        // UI Text
-        g.setColor(Color.WHITE);
-        g.drawString("Use WASD or Arrows to move.", 20, 30);
-        g.drawString("X: " + String.format("%.2f", posX) + " Y: " + String.format("%.2f", posY), 20, 50);
+        private static long mix(long z) {
+            z = (z ^ (z >>> 33)) * 0xFF51AFD7ED558CCDL;
+            z = (z ^ (z >>> 33)) * 0xC4CEB9FE1A85EC53L;
+            return z ^ (z >>> 33);
+        }
+    }
 
-        g.dispose();
-        bs.show();
+    /**
+     * All textures packed back to back in one int[], 64x64 texels each, so a lookup is one array
+     * index. Sizes are powers of two: texture coordinates wrap with a mask and address with shifts.
+     * Each texture is stored column-major, so a wall column reads consecutive texels.
+     * shaded holds every texel at half brightness (the old (c >> 1) & 0x7F7F7F side dimming),
+     * precomputed once instead of per pixel.
+     */
+    static class TextureAtlas {
+        static final int SIZE = TEXTURE_WIDTH;  // Square textures, TEXTURE_WIDTH == TEXTURE_HEIGHT
+        static final int SHIFT = Integer.numberOfTrailingZeros(SIZE);
+        static final int MASK = SIZE - 1;
+        static final int WALLS = 5;            // Textures 0..4 for wall types 1..5
+        static final int FLOOR = 5, CEILING = 6;
+        static final int COUNT = 7;
+
+        final int[] texels = new int[COUNT << (2 * SHIFT)];
+        final int[] shaded = new int[texels.length];
+
+        static int base(int texture) { return texture << (2 * SHIFT); }
+
+        private void set(int texture, int x, int y, int rgb) {
+            texels[base(texture) + (x << SHIFT) + y] = rgb;
+        }
+
+        // Procedural textures, one per wall colour of the flat renderer, plus floor and ceiling
+        static TextureAtlas generate() {
+            if (SIZE != TEXTURE_HEIGHT || Integer.bitCount(SIZE) != 1) throw new IllegalStateException("Textures must be square powers of two");
+            TextureAtlas atlas = new TextureAtlas();
+            for (int x = 0; x < SIZE; x++) {
+                for (int y = 0; y < SIZE; y++) {
+                    int xor = (x * 256 / SIZE) ^ (y * 256 / SIZE);
+                    // Red brick: rows of bricks, alternate rows offset by half a brick, grey mortar
+                    int brickX = (x + ((y / 16) % 2) * 16) % 32;
+                    boolean mortar = y % 16 == 0 || brickX == 0;
+                    atlas.set(0, x, y, mortar ? 0x8C8C8C : (0xA0 + (xor & 0x3F)) << 16 | 0x1818);
+                    // Green: xor pattern
+                    atlas.set(1, x, y, (xor & 0xFF) << 8);
+                    // Blue: tiles with a dark border
+                    boolean border = (x & 15) == 0 || (y & 15) == 0;
+                    atlas.set(2, x, y, border ? 0x101040 : 0x2030C0 + ((x ^ y) & 7) * 0x080808);
+                    // White: rough stone
+                    int grey = 0xB0 + (((x * 7919 + y * 104729) ^ (x * y)) & 0x3F);
+                    atlas.set(3, x, y, grey * 0x010101);
+                    // Yellow: wood grain
+                    int grain = (int) (24 * Math.sin((x + 4 * Math.sin(y * 0.3)) * 0.6));
+                    atlas.set(4, x, y, (0xC0 + grain) << 16 | (0xA0 + grain) << 8 | 0x20);
+                    // Floor: grey checker, ceiling: dark panels
+                    atlas.set(FLOOR, x, y, ((x / 32 + y / 32) % 2 == 0) ? 0x606060 : 0x4A4A4A);
+                    atlas.set(CEILING, x, y, (x % 32 == 0 || y % 32 == 0) ? 0x1C1C1C : 0x383838);
+                }
+            }
+            for (int i = 0; i < atlas.texels.length; i++) atlas.shaded[i] = (atlas.texels[i] >> 1) & 8355711;
+            return atlas;
+        }
     }
 
     // --- Input Handling ---
@@ -301,6 +794,7 @@ public class Raycaster extends JFrame implements Runnable, KeyListener {
         if (e.getKeyCode() == KeyEvent.VK_RIGHT || e.getKeyCode() == KeyEvent.VK_D) keyRight = true;
         if (e.getKeyCode() == KeyEvent.VK_UP || e.getKeyCode() == KeyEvent.VK_W) keyUp = true;
         if (e.getKeyCode() == KeyEvent.VK_DOWN || e.getKeyCode() == KeyEvent.VK_S) keyDown = true;
+        if (e.getKeyCode() == KeyEvent.VK_T) renderer.textured = !renderer.textured;
     }
 
     public void keyReleased(KeyEvent e) {
@@ -310,7 +804,62 @@ public class Raycaster extends JFrame implements Runnable, KeyListener {
         if (e.getKeyCode() == KeyEvent.VK_DOWN || e.getKeyCode() == KeyEvent.VK_S) keyDown = false;
     }
 
-    public static void main(String[] args) {
-        new Raycaster();
+    private static void usage() {
+        System.err.println("Usage: java Raycaster [WIDTHxHEIGHT] [threads] [world.rcw]");
+        System.err.println("       java Raycaster generate world.rcw [size] [seed]");
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length >= 2 && args[0].equals("generate")) {
+            int size;
+            long seed;
+            try {
+                size = args.length >= 3 ? Integer.parseInt(args[2]) : 65536;
+                seed = args.length >= 4 ? Long.parseLong(args[3]) : 1;
+            } catch (NumberFormatException e) {
+                System.err.println("Bad number: " + e.getMessage());
+                usage();
+                return;
+            }
+            if (size <= 0) {
+                System.err.println("Bad size " + size + ", expected a positive number of cells");
+                usage();
+                return;
+            }
+            ChunkedMap.generate(Paths.get(args[1]), size, size, seed);
+            return;
+        }
+        int w = DEFAULT_WIDTH, h = DEFAULT_HEIGHT;
+        if (args.length >= 1) {
+            String[] wh = args[0].toLowerCase().split("x");
+            try {
+                if (wh.length != 2) throw new NumberFormatException();
+                w = Integer.parseInt(wh[0]);
+                h = Integer.parseInt(wh[1]);
+            } catch (NumberFormatException e) {
+                w = h = 0;
+            }
+            if (w <= 0 || h <= 0) {
+                System.err.println("Bad size '" + args[0] + "', expected WIDTHxHEIGHT");
+                usage();
+                return;
+            }
+        }
+        int threads = Runtime.getRuntime().availableProcessors();
+        if (args.length >= 2) {
+            try {
+                threads = Integer.parseInt(args[1]);
+            } catch (NumberFormatException e) {
+                threads = 0;
+            }
+            if (threads <= 0) {
+                System.err.println("Bad thread count '" + args[1] + "', expected a positive number");
+                usage();
+                return;
+            }
+        }
+        WorldMap world = args.length >= 3 ? ChunkedMap.open(Paths.get(args[2]), ChunkedMap.DEFAULT_CACHE_CHUNKS)
+                                           : new ArrayMap(DEFAULT_MAP);
+        new Raycaster(w, h, threads, world);
     }
 }
\ No newline at end of file
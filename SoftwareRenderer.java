@@ -2,44 +2,142 @@ import javax.swing.*;
 import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.awt.image.DataBufferInt;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * 3D Software Renderer (Rasterizer)
  * * Concept:
  * - A "GPU" written in software.
- * - Manually transforms 3D vertices to 2D screen space.
- * - Rasterizes triangles pixel-by-pixel using Barycentric coordinates.
+ * - Manually transforms 3D vertices to 2D screen space, once per shared vertex per frame.
+ * - Rasterizes triangles pixel-by-pixel using incremental integer edge functions.
  * - Implements Z-Buffering to solve depth visibility.
  * * Key Features:
  * - Matrix Math: Rotation, Translation, Projection.
- * - Rasterization: Triangle filling algorithm.
+ * - Indexed meshes: flat vertex and index buffers, loadable from Wavefront OBJ files.
+ * - Rasterization: Triangles are binned into 64x64 screen tiles, tiles are filled in parallel
+ *   (see TileRasterizer).
  * - Z-Buffer: Depth testing to ensure solid objects look solid.
+ * - Culling: Backfaces, bounding spheres outside the view frustum, and objects and triangles
+ *   hidden behind already drawn geometry (hierarchical Z). Triangles are clipped at the near plane.
  * - Lighting: Simple directional lighting (Dot Product).
+ * * Usage: java SoftwareRenderer [WIDTHxHEIGHT] [threads] [model.obj | sphereTriangles | field]
+ *   (default 800x600, one thread per core, the spaceship; a triangle count renders a dense sphere,
+ *   field the ~1M-triangle culling test scene)
  */
 public class SoftwareRenderer extends JPanel implements Runnable {
 
     // --- Configuration ---
-    private static final int WIDTH = 800;
-    private static final int HEIGHT = 600;
+    private static final int DEFAULT_WIDTH = 800;
+    private static final int DEFAULT_HEIGHT = 600;
+    private final int width, height;
 
     // --- Render State ---
     private BufferedImage displayImage;
     private int[] pixels;
-    private float[] zBuffer; // Depth buffer
+    private final TileRasterizer rasterizer; // Owns the depth buffer
     private boolean running = true;
+    private double frameMs;
 
     // --- 3D Scene ---
-    private Mesh mesh;
+    private final SceneObject[] objects;
+    private final SceneObject[] drawOrder; // Objects inside the frustum, nearest first
     private float angle = 0;
+    volatile boolean frustumCulling = true;
+    volatile boolean occlusionCulling = true;
+    private volatile FrameStats stats = new FrameStats();
+
+    // --- Clipping ---
+    private static final float NEAR = 0.1f, FAR = 100.0f;
+    private static final float GUARD_BAND = 4; // Clip-space multiple of the viewport submitted unclipped
+    private final float guardBand;             // GUARD_BAND, narrowed so accepted vertices stay inside TileRasterizer.GUARD
+    private static final int OUT_NEAR = 1, OUT_FAR = 2, OUT_LEFT = 4, OUT_RIGHT = 8, OUT_BOTTOM = 16, OUT_TOP = 32;
+    private static final int OUT_FRUSTUM = 63;
+    private static final int OUT_GUARD = 64;   // Beyond the guard band on some side
+    private static final float FLUSH_COVERAGE = 1 / 16f; // Screen fraction queued before refreshing hierarchical Z
+    private final float[][] frustum = new float[6][4];   // View-space planes, unit normals pointing inside
+
+    // --- Transform Cache (per vertex of the object being drawn) ---
+    private float[] viewPos = new float[0];   // xyz after model rotation and camera translation
+    private float[] clipPos = new float[0];   // xyzw after projection, before perspective division
+    private float[] screenPos = new float[0]; // Pixel x, y and projected depth
+    private int[] outcodes = new int[0];      // OUT_* planes each vertex is outside of
+    private float[] polyIn = new float[4 * 9], polyOut = new float[4 * 9]; // Clipped polygon, up to 8 corners
+    private final float[] polyScreen = new float[3 * 9];
+
+    private static void usage() {
+        System.err.println("Usage: java SoftwareRenderer [WIDTHxHEIGHT] [threads] [model.obj | sphereTriangles | field]");
+    }
+
+    public static void main(String[] args) throws IOException {
+        int w = DEFAULT_WIDTH, h = DEFAULT_HEIGHT;
+        if (args.length >= 1) {
+            String[] wh = args[0].toLowerCase().split("x");
+            try {
+                if (wh.length != 2) throw new NumberFormatException();
+                w = Integer.parseInt(wh[0]);
+                h = Integer.parseInt(wh[1]);
+            } catch (NumberFormatException e) {
+                w = h = 0;
+            }
+            if (w <= 0 || h <= 0) {
+                System.err.println("Bad size '" + args[0] + "', expected WIDTHxHEIGHT");
+                usage();
+                return;
+            }
+        }
+        int threads = Runtime.getRuntime().availableProcessors();
+        if (args.length >= 2) {
+            try {
+                threads = Integer.parseInt(args[1]);
+            } catch (NumberFormatException e) {
+                threads = 0;
+            }
+            if (threads <= 0) {
+                System.err.println("Bad thread count '" + args[1] + "', expected a positive number");
+                usage();
+                return;
+            }
+        }
+        SceneObject[] scene = {new SceneObject(createShip(), 0, 0, 5.0f, true)};
+        if (args.length >= 3) {
+            if (args[2].equals("field")) {
+                scene = createField();
+            } else if (args[2].toLowerCase().endsWith(".obj")) {
+                scene[0] = new SceneObject(loadObj(Paths.get(args[2])).fit(2.0f), 0, 0, 5.0f, true);
+            } else {
+                int triangles;
+                try {
+                    triangles = Integer.parseInt(args[2]);
+                } catch (NumberFormatException e) {
+                    triangles = 0;
+                }
+                if (triangles <= 0) {
+                    System.err.println("Bad scene '" + args[2] + "', expected a .obj file, a sphere triangle count or 'field'");
+                    usage();
+                    return;
+                }
+                scene[0] = new SceneObject(createSphere(1.8f, triangles), 0, 0, 5.0f, true);
+            }
+        }
 
-    public static void main(String[] args) {
         JFrame frame = new JFrame("3D Software Renderer (Java)");
-        SoftwareRenderer renderer = new SoftwareRenderer();
+        SoftwareRenderer renderer = new SoftwareRenderer(w, h, threads, scene);
 
+        // Large render resolutions are scaled down to fit the screen
+        Dimension screen = Toolkit.getDefaultToolkit().getScreenSize();
+        double scale = Math.min(1.0, Math.min(screen.width * 0.9 / w, screen.height * 0.9 / h));
         frame.add(renderer);
-        frame.setSize(WIDTH, HEIGHT);
+        frame.setSize((int) (w * scale), (int) (h * scale));
         frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         frame.setLocationRelativeTo(null);
         frame.setResizable(false);
@@ -49,23 +147,62 @@ public class SoftwareRenderer extends JPanel implements Runnable {
     }
 
     public SoftwareRenderer() {
+        this(DEFAULT_WIDTH, DEFAULT_HEIGHT, Runtime.getRuntime().availableProcessors(), createShip());
+    }
+
+    // One spinning mesh 5 units in front of the camera
+    public SoftwareRenderer(int width, int height, int threads, Mesh mesh) {
+        this(width, height, threads, new SceneObject(mesh, 0, 0, 5.0f, true));
+    }
+
+    public SoftwareRenderer(int width, int height, int threads, SceneObject... objects) {
+        this.width = width;
+        this.height = height;
         // Setup Bitmap for fast pixel writing
-        displayImage = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+        displayImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
         pixels = ((DataBufferInt) displayImage.getRaster().getDataBuffer()).getData();
-        zBuffer = new float[WIDTH * HEIGHT];
+        rasterizer = new TileRasterizer(width, height, pixels, threads);
+        // Clip-space g maps to pixel (g + 1) / 2 * size, which submit() must not reject
+        guardBand = Math.min(GUARD_BAND, 2 * (TileRasterizer.GUARD - 1) / Math.max(width, height) - 1);
+        this.objects = objects;
+        this.drawOrder = new SceneObject[objects.length];
+    }
 
-        // Create a "Spaceship" mesh procedurally
-        mesh = new Mesh();
+    // Create a "Spaceship" mesh procedurally
+    static Mesh createShip() {
+        Mesh mesh = new Mesh();
         // Body
-        mesh.tris.addAll(createCube(0, 0, 0, 1, 1, 3).tris);
+        mesh.append(createCube(0, 0, 0, 1, 1, 3));
         // Wings
-        mesh.tris.addAll(createCube(-1.5f, 0, 0.5f, 2, 0.1f, 1).tris);
-        mesh.tris.addAll(createCube(1.5f, 0, 0.5f, 2, 0.1f, 1).tris);
+        mesh.append(createCube(-1.5f, 0, 0.5f, 2, 0.1f, 1));
+        mesh.append(createCube(1.5f, 0, 0.5f, 2, 0.1f, 1));
         // Cockpit (Pyramid-ish)
-        mesh.tris.add(new Triangle(new Vec3(-0.5f, 0.5f, 1), new Vec3(0.5f, 0.5f, 1), new Vec3(0, 1.0f, 0)));
-        mesh.tris.add(new Triangle(new Vec3(0.5f, 0.5f, 1), new Vec3(0.5f, 0.5f, -1), new Vec3(0, 1.0f, 0)));
-        mesh.tris.add(new Triangle(new Vec3(0.5f, 0.5f, -1), new Vec3(-0.5f, 0.5f, -1), new Vec3(0, 1.0f, 0)));
-        mesh.tris.add(new Triangle(new Vec3(-0.5f, 0.5f, -1), new Vec3(-0.5f, 0.5f, 1), new Vec3(0, 1.0f, 0)));
+        int a = mesh.addVertex(-0.5f, 0.5f, 1), b = mesh.addVertex(0.5f, 0.5f, 1);
+        int c = mesh.addVertex(0.5f, 0.5f, -1), d = mesh.addVertex(-0.5f, 0.5f, -1);
+        int top = mesh.addVertex(0, 1.0f, 0);
+        mesh.addTriangle(a, top, b);
+        mesh.addTriangle(b, top, c);
+        mesh.addTriangle(c, top, d);
+        mesh.addTriangle(d, top, a);
+        return mesh;
+    }
+
+    /**
+     * Dense scene for the culling stages: a wall close to the camera hides the middle of a 16 x 15
+     * grid of 4k-triangle spheres (~1M triangles), many of them outside the view, and a floor slab
+     * runs from behind the camera to the distance, so it is cut by the near plane.
+     */
+    static SceneObject[] createField() {
+        List<SceneObject> scene = new ArrayList<>();
+        scene.add(new SceneObject(createCube(0, 0, 0, 6, 4, 0.5f), 0, 0, 10, false));     // Wall
+        scene.add(new SceneObject(createCube(0, 0, 0, 80, 0.2f, 90), 0, -3, 35, false));  // Floor
+        Mesh sphere = createSphere(1.2f, 4000);
+        for (int gz = 0; gz < 15; gz++) {
+            for (int gx = 0; gx < 16; gx++) {
+                scene.add(new SceneObject(sphere, -30 + gx * 4, 0, 14 + gz * 4, true));
+            }
+        }
+        return scene.toArray(new SceneObject[0]);
     }
 
     @Override
@@ -87,17 +224,17 @@ public class SoftwareRenderer extends JPanel implements Runnable {
         }
     }
 
-    private void update() {
+    void update() {
         angle += 0.02f;
     }
 
     // --- THE RENDER PIPELINE ---
-    private void render() {
-        // 1. Clear Buffers
-        for (int i = 0; i < pixels.length; i++) {
-            pixels[i] = 0xFF101015; // Dark Background
-            zBuffer[i] = Float.MAX_VALUE; // Init Depth to infinity
-        }
+    void render() {
+        long t0 = System.nanoTime();
+        FrameStats st = new FrameStats();
+        boolean occlusion = occlusionCulling;
+        // 1. Start a frame (buffers are cleared tile by tile during rasterization)
+        rasterizer.beginFrame(0xFF101015, occlusion); // Dark Background
 
         // 2. Matrices
         // Model Rotation
@@ -106,92 +243,258 @@ public class SoftwareRenderer extends JPanel implements Runnable {
         Matrix4 rotZ = Matrix4.rotationZ(angle * 0.3f);
         Matrix4 world = rotY.multiply(rotX).multiply(rotZ);
 
-        // Translation (Move camera back)
-        Matrix4 translation = Matrix4.translation(0, 0, 5.0f);
-
         // Projection (3D -> 2D)
-        Matrix4 proj = Matrix4.perspective(90.0f, (float)WIDTH/HEIGHT, 0.1f, 100.0f);
+        Matrix4 proj = Matrix4.perspective(90.0f, (float)width/height, NEAR, FAR);
+        extractFrustum(proj);
+
+        // 3. Object Culling: bounding spheres against the view frustum, survivors sorted nearest first
+        int visible = 0;
+        for (SceneObject o : objects) {
+            // Translation (Move the object in front of the camera)
+            Matrix4 translation = Matrix4.translation(o.x, o.y, o.z);
+            o.view = o.spin ? world.multiply(translation) : translation;
+            float[] b = o.mesh.bounds();
+            float[][] m = o.view.m;
+            o.viewX = b[0] * m[0][0] + b[1] * m[1][0] + b[2] * m[2][0] + m[3][0];
+            o.viewY = b[0] * m[0][1] + b[1] * m[1][1] + b[2] * m[2][1] + m[3][1];
+            o.viewZ = b[0] * m[0][2] + b[1] * m[1][2] + b[2] * m[2][2] + m[3][2];
+            if (frustumCulling && outsideFrustum(o.viewX, o.viewY, o.viewZ, b[3])) {
+                st.objectsOutside++;
+                continue;
+            }
+            drawOrder[visible++] = o;
+        }
+        Arrays.sort(drawOrder, 0, visible, NEAREST_FIRST);
+
+        // 4. Draw front to back, so nearer geometry can hide what follows
+        for (int k = 0; k < visible; k++) {
+            SceneObject o = drawOrder[k];
+            if (occlusion && objectOccluded(o, proj)) {
+                st.objectsOccluded++;
+                continue;
+            }
+            st.objectsDrawn++;
+            drawObject(o, proj, st);
+            // Rasterize what is queued once it covers enough screen to occlude later objects
+            if (occlusion && k < visible - 1 && rasterizer.queuedArea() >= FLUSH_COVERAGE * width * height) {
+                rasterizer.flush();
+            }
+        }
 
-        Vec3 lightDir = new Vec3(0, 0, -1).normalize(); // Light coming from camera
+        // 5. Rasterization Stage (fill all tiles in parallel)
+        rasterizer.endFrame();
+        st.trianglesDrawn = rasterizer.drawnTriangles();
+        st.trianglesOccluded = rasterizer.occludedTriangles();
+        stats = st;
+        frameMs = frameMs * 0.9 + (System.nanoTime() - t0) / 1e6 * 0.1;
+    }
+
+    private void drawObject(SceneObject o, Matrix4 proj, FrameStats st) {
+        Mesh mesh = o.mesh;
+        // Vertex Shader Stage: every vertex is transformed and projected once, shared corners included
+        transformVertices(mesh, o.view, proj);
 
-        // 3. Process Triangles
-        for (Triangle tri : mesh.tris) {
+        // Process Triangles
+        float[] vp = viewPos, sp = screenPos;
+        int[] oc = outcodes;
+        int[] indices = mesh.indices;
+        for (int t = 0, n = 3 * mesh.triangleCount; t < n; t += 3) {
+            int a = indices[t], b = indices[t + 1], c = indices[t + 2];
 
-            // A. Vertex Shader Stage (Transform Vertices)
-            Vec3 v1 = world.multiply(tri.p1);
-            Vec3 v2 = world.multiply(tri.p2);
-            Vec3 v3 = world.multiply(tri.p3);
+            // A. Frustum: all three corners outside the same plane
+            if (frustumCulling && (oc[a] & oc[b] & oc[c] & OUT_FRUSTUM) != 0) {
+                st.trianglesOutside++;
+                continue;
+            }
 
-            // B. Calculate Normal & Lighting (Flat Shading)
-            Vec3 line1 = v2.sub(v1);
-            Vec3 line2 = v3.sub(v1);
-            Vec3 normal = line1.cross(line2).normalize();
+            // B. Calculate Normal (Flat Shading) in view space
+            int i1 = 3 * a, i2 = 3 * b, i3 = 3 * c;
+            float ax = vp[i2] - vp[i1], ay = vp[i2 + 1] - vp[i1 + 1], az = vp[i2 + 2] - vp[i1 + 2];
+            float bx = vp[i3] - vp[i1], by = vp[i3 + 1] - vp[i1 + 1], bz = vp[i3 + 2] - vp[i1 + 2];
+            float nx = ay * bz - az * by, ny = az * bx - ax * bz, nz = ax * by - ay * bx;
 
-            // Backface Culling (Skip triangles facing away)
-            Vec3 cameraRay = v1.sub(new Vec3(0,0,0)); // Camera is at 0,0,0 relative to object before translation
-            if (normal.dot(cameraRay) > 0) continue;
+            // Backface Culling: meshes are wound so the normal points into the solid, so a visible
+            // face has its normal pointing away from the camera (at the view-space origin)
+            if (nx * vp[i1] + ny * vp[i1 + 1] + nz * vp[i1 + 2] <= 0) {
+                st.trianglesBackface++;
+                continue;
+            }
 
-            // Simple directional lighting
-            float light = Math.max(0.1f, normal.dot(lightDir.scale(-1)));
+            // Simple directional lighting, light coming from camera (along +z)
+            float light = Math.max(0.1f, nz / (float) Math.sqrt(nx * nx + ny * ny + nz * nz));
             int color = getShadedColor(0xFFFFFF, light);
 
-            // C. Project to Screen Space
-            // 1. Apply translation (Camera View)
-            v1.z += 5.0f; v2.z += 5.0f; v3.z += 5.0f;
+            // C. Binning Stage (queue the triangle for every screen tile it may touch)
+            if (((oc[a] | oc[b] | oc[c]) & (OUT_NEAR | OUT_GUARD)) != 0) {
+                st.trianglesClipped++;
+                submitClipped(a, b, c, color);
+            } else {
+                rasterizer.submit(sp[i1], sp[i1 + 1], sp[i1 + 2], sp[i2], sp[i2 + 1], sp[i2 + 2],
+                                  sp[i3], sp[i3 + 1], sp[i3 + 2], color);
+            }
+        }
+    }
 
-            // 2. Apply Projection Matrix
-            v1 = proj.multiplyProject(v1);
-            v2 = proj.multiplyProject(v2);
-            v3 = proj.multiplyProject(v3);
+    /**
+     * Fills the transform cache for one mesh: view-space, clip-space and screen position and the
+     * clip outcode of every vertex. The buffers are reused across objects and frames and only grow.
+     */
+    private void transformVertices(Mesh mesh, Matrix4 view, Matrix4 proj) {
+        int n = mesh.vertexCount;
+        if (outcodes.length < n) {
+            viewPos = new float[3 * n];
+            clipPos = new float[4 * n];
+            screenPos = new float[3 * n];
+            outcodes = new int[n];
+        }
+        float[][] m = view.m, p = proj.m;
+        float[] in = mesh.vertices, vp = viewPos, cp = clipPos, sp = screenPos;
+        for (int v = 0; v < n; v++) {
+            int i = 3 * v;
+            float x = in[i], y = in[i + 1], z = in[i + 2];
+            // 1. Rotation and translation (Camera View)
+            float vx = x * m[0][0] + y * m[1][0] + z * m[2][0] + m[3][0];
+            float vy = x * m[0][1] + y * m[1][1] + z * m[2][1] + m[3][1];
+            float vz = x * m[0][2] + y * m[1][2] + z * m[2][2] + m[3][2];
+            vp[i] = vx; vp[i + 1] = vy; vp[i + 2] = vz;
 
-            // 3. Scale to Viewport (Screen Coordinates)
-            v1.x = (v1.x + 1) * 0.5f * WIDTH; v1.y = (1 - (v1.y + 1) * 0.5f) * HEIGHT;
-            v2.x = (v2.x + 1) * 0.5f * WIDTH; v2.y = (1 - (v2.y + 1) * 0.5f) * HEIGHT;
-            v3.x = (v3.x + 1) * 0.5f * WIDTH; v3.y = (1 - (v3.y + 1) * 0.5f) * HEIGHT;
+            // 2. Apply Projection Matrix
+            float px = vx * p[0][0] + vy * p[1][0] + vz * p[2][0] + p[3][0];
+            float py = vx * p[0][1] + vy * p[1][1] + vz * p[2][1] + p[3][1];
+            float pz = vx * p[0][2] + vy * p[1][2] + vz * p[2][2] + p[3][2];
+            float w = vx * p[0][3] + vy * p[1][3] + vz * p[2][3] + p[3][3];
+            cp[4 * v] = px; cp[4 * v + 1] = py; cp[4 * v + 2] = pz; cp[4 * v + 3] = w;
+            outcodes[v] = outcode(px, py, pz, w);
 
-            // D. Rasterization Stage (Fill Triangle)
-            drawTriangle(v1, v2, v3, color);
+            // 3. Perspective Division and Scale to Viewport (Screen Coordinates)
+            if (w != 0) { px /= w; py /= w; pz /= w; }
+            sp[i] = (px + 1) * 0.5f * width;
+            sp[i + 1] = (1 - (py + 1) * 0.5f) * height;
+            sp[i + 2] = pz;
         }
     }
 
+    private int outcode(float x, float y, float z, float w) {
+        int code = 0;
+        if (z < 0) code |= OUT_NEAR;
+        if (z > w) code |= OUT_FAR;
+        if (x < -w) code |= OUT_LEFT;
+        if (x > w) code |= OUT_RIGHT;
+        if (y < -w) code |= OUT_BOTTOM;
+        if (y > w) code |= OUT_TOP;
+        float g = guardBand * w;
+        if (x < -g || x > g || y < -g || y > g) code |= OUT_GUARD;
+        return code;
+    }
+
     /**
-     * Rasterizes a triangle using Barycentric Coordinates and Z-Buffering.
+     * Clips a triangle in clip space (Sutherland-Hodgman) against the near plane and the guard
+     * band, then submits the remaining polygon as a fan. Crossing points are always interpolated
+     * from the inside corner, so neighbouring triangles produce the same point on a shared edge.
      */
-    private void drawTriangle(Vec3 v1, Vec3 v2, Vec3 v3, int color) {
-        // Bounding Box
-        int minX = (int) Math.max(0, Math.min(v1.x, Math.min(v2.x, v3.x)));
-        int maxX = (int) Math.min(WIDTH - 1, Math.max(v1.x, Math.max(v2.x, v3.x)));
-        int minY = (int) Math.max(0, Math.min(v1.y, Math.min(v2.y, v3.y)));
-        int maxY = (int) Math.min(HEIGHT - 1, Math.max(v1.y, Math.max(v2.y, v3.y)));
-
-        // Precompute triangle area term for barycentric math
-        float area = (v2.y - v3.y) * (v1.x - v3.x) + (v3.x - v2.x) * (v1.y - v3.y);
-
-        for (int y = minY; y <= maxY; y++) {
-            for (int x = minX; x <= maxX; x++) {
-
-                // Calculate Barycentric Coordinates (w1, w2, w3)
-                // These weights tell us how close pixel (x,y) is to v1, v2, v3
-                float w1 = ((v2.y - v3.y) * (x - v3.x) + (v3.x - v2.x) * (y - v3.y)) / area;
-                float w2 = ((v3.y - v1.y) * (x - v3.x) + (v1.x - v3.x) * (y - v3.y)) / area;
-                float w3 = 1.0f - w1 - w2;
-
-                // Check if point is inside triangle
-                if (w1 >= 0 && w2 >= 0 && w3 >= 0) {
-                    // Interpolate Depth (Z)
-                    float depth = w1 * v1.z + w2 * v2.z + w3 * v3.z;
-                    int idx = x + y * WIDTH;
-
-                    // Z-Buffer Test: Only draw if this pixel is closer than what's already there
-                    if (depth < zBuffer[idx]) {
-                        zBuffer[idx] = depth;
-                        pixels[idx] = color;
-                    }
+    private void submitClipped(int a, int b, int c, int color) {
+        float[] in = polyIn, out = polyOut, cp = clipPos;
+        System.arraycopy(cp, 4 * a, in, 0, 4);
+        System.arraycopy(cp, 4 * b, in, 4, 4);
+        System.arraycopy(cp, 4 * c, in, 8, 4);
+        int n = 3;
+        for (int plane = 0; plane < 5 && n >= 3; plane++) {
+            int m = 0;
+            for (int i = 0; i < n; i++) {
+                int j = i + 1 == n ? 0 : i + 1;
+                float di = clipDistance(plane, in, i), dj = clipDistance(plane, in, j);
+                if (di >= 0) {
+                    System.arraycopy(in, 4 * i, out, 4 * m++, 4);
+                    if (dj < 0) lerp(in, i, j, di / (di - dj), out, m++);
+                } else if (dj >= 0) {
+                    lerp(in, j, i, dj / (dj - di), out, m++);
                 }
             }
+            float[] swap = in; in = out; out = swap;
+            n = m;
+        }
+        if (n < 3) return;
+
+        float[] s = polyScreen;
+        for (int i = 0; i < n; i++) {
+            float w = in[4 * i + 3];
+            s[3 * i] = (in[4 * i] / w + 1) * 0.5f * width;
+            s[3 * i + 1] = (1 - (in[4 * i + 1] / w + 1) * 0.5f) * height;
+            s[3 * i + 2] = in[4 * i + 2] / w;
+        }
+        for (int i = 1; i < n - 1; i++) {
+            rasterizer.submit(s[0], s[1], s[2], s[3 * i], s[3 * i + 1], s[3 * i + 2],
+                              s[3 * i + 3], s[3 * i + 4], s[3 * i + 5], color);
+        }
+    }
+
+    // Signed distance of polygon corner i to clip plane 0 (near) or 1..4 (guard band sides), >= 0 inside
+    private float clipDistance(int plane, float[] poly, int i) {
+        float x = poly[4 * i], y = poly[4 * i + 1], z = poly[4 * i + 2], w = poly[4 * i + 3];
+        switch (plane) {
+            case 0: return z;
+            case 1: return guardBand * w + x;
+            case 2: return guardBand * w - x;
+            case 3: return guardBand * w + y;
+            default: return guardBand * w - y;
         }
     }
 
+    private static void lerp(float[] poly, int from, int to, float t, float[] out, int o) {
+        for (int k = 0; k < 4; k++) {
+            out[4 * o + k] = poly[4 * from + k] + t * (poly[4 * to + k] - poly[4 * from + k]);
+        }
+    }
+
+    // Gribb-Hartmann: clip-space planes w+x, w-x, w+y, w-y, z and w-z expressed in view space
+    private void extractFrustum(Matrix4 proj) {
+        float[][] p = proj.m;
+        int[][] planes = {{3, 0, 1}, {3, 0, -1}, {3, 1, 1}, {3, 1, -1}, {2, 2, 0}, {3, 2, -1}};
+        for (int k = 0; k < 6; k++) {
+            int a = planes[k][0], b = planes[k][1], sign = planes[k][2];
+            float[] f = frustum[k];
+            for (int r = 0; r < 4; r++) f[r] = sign == 0 ? p[r][b] : p[r][a] + sign * p[r][b];
+            float len = (float) Math.sqrt(f[0] * f[0] + f[1] * f[1] + f[2] * f[2]);
+            for (int r = 0; r < 4; r++) f[r] /= len;
+        }
+    }
+
+    private boolean outsideFrustum(float x, float y, float z, float radius) {
+        for (float[] f : frustum) {
+            if (f[0] * x + f[1] * y + f[2] * z + f[3] < -radius) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Tests the screen rectangle and nearest depth of the object's bounding sphere against
+     * the hierarchical depth buffer. The rectangle is the projection of the sphere's bounding box,
+     * so the test is conservative; objects reaching the near plane are never reported hidden.
+     */
+    private boolean objectOccluded(SceneObject o, Matrix4 proj) {
+        float r = o.mesh.bounds()[3];
+        if (o.viewZ - r <= NEAR) return false;
+        float[][] p = proj.m;
+        float minX = Float.MAX_VALUE, minY = Float.MAX_VALUE, maxX = -Float.MAX_VALUE, maxY = -Float.MAX_VALUE;
+        float minZ = Float.MAX_VALUE;
+        for (int corner = 0; corner < 8; corner++) {
+            float vx = o.viewX + ((corner & 1) == 0 ? -r : r);
+            float vy = o.viewY + ((corner & 2) == 0 ? -r : r);
+            float vz = o.viewZ + ((corner & 4) == 0 ? -r : r);
+            float w = vx * p[0][3] + vy * p[1][3] + vz * p[2][3] + p[3][3];
+            float sx = ((vx * p[0][0] + vy * p[1][0] + vz * p[2][0] + p[3][0]) / w + 1) * 0.5f * width;
+            float sy = (1 - ((vx * p[0][1] + vy * p[1][1] + vz * p[2][1] + p[3][1]) / w + 1) * 0.5f) * height;
+            float sz = (vx * p[0][2] + vy * p[1][2] + vz * p[2][2] + p[3][2]) / w;
+            minX = Math.min(minX, sx); maxX = Math.max(maxX, sx);
+            minY = Math.min(minY, sy); maxY = Math.max(maxY, sy);
+            minZ = Math.min(minZ, sz);
+        }
+        int x0 = Math.max(0, (int) Math.floor(minX)), x1 = Math.min(width - 1, (int) Math.ceil(maxX));
+        int y0 = Math.max(0, (int) Math.floor(minY)), y1 = Math.min(height - 1, (int) Math.ceil(maxY));
+        if (x0 > x1 || y0 > y1) return false; // Off screen: left to the frustum test
+        return rasterizer.occluded(x0, y0, x1, y1, minZ);
+    }
+
     private int getShadedColor(int hexColor, float intensity) {
         int r = (int)(((hexColor >> 16) & 0xFF) * intensity);
         int g = (int)(((hexColor >> 8) & 0xFF) * intensity);
@@ -202,69 +505,477 @@ public class SoftwareRenderer extends JPanel implements Runnable {
     @Override
     protected void paintComponent(Graphics g) {
         super.paintComponent(g);
-        g.drawImage(displayImage, 0, 0, null);
+        g.drawImage(displayImage, 0, 0, getWidth(), getHeight(), null);
 
         g.setColor(Color.WHITE);
         g.drawString("Software Renderer: Pure Java Math", 10, 20);
-        g.drawString("Vertices: " + mesh.tris.size() * 3, 10, 35);
+        long vertices = 0, triangles = 0;
+        for (SceneObject o : objects) { vertices += o.mesh.vertexCount; triangles += o.mesh.triangleCount; }
+        g.drawString("Vertices: " + vertices + ", Triangles: " + triangles, 10, 35);
+        g.drawString(String.format("%dx%d, %d threads: %.2f ms/frame", width, height, rasterizer.threads(), frameMs), 10, 50);
+        FrameStats st = stats;
+        g.drawString(String.format("Objects: %d drawn, %d outside frustum, %d occluded",
+                st.objectsDrawn, st.objectsOutside, st.objectsOccluded), 10, 65);
+        g.drawString(String.format("Triangles: %d drawn, %d backface, %d outside frustum, %d clipped, %d occluded",
+                st.trianglesDrawn, st.trianglesBackface, st.trianglesOutside, st.trianglesClipped, st.trianglesOccluded), 10, 80);
     }
 
-    // --- MATH HELPERS ---
+    // Culling counters of one frame
+    static class FrameStats {
+        int objectsDrawn, objectsOutside, objectsOccluded;
+        int trianglesDrawn, trianglesBackface, trianglesOutside, trianglesClipped, trianglesOccluded;
+    }
+
+    // --- RASTERIZER ---
+
+    /**
+     * Tile-binned triangle rasterizer shared by the window and the benchmarks.
+     * submit() snaps screen-space vertices to 1/16 pixel and appends the triangle to the bin of
+     * every 64x64 tile its bounding box overlaps (tiles fully outside one edge are skipped).
+     * endFrame() fills the tiles in parallel. Each tile clears and owns its pixels and its own
+     * contiguous slice of zBuffer, so threads never share a cache line of depth. Inside a tile,
+     * coverage uses integer edge functions stepped by one addition per pixel, with the top-left
+     * fill rule so pixels on shared edges are drawn exactly once. Depth is a screen-space plane,
+     * also stepped per pixel. A tile draws its bin in submission order, so the image does not depend
+     * on the thread count. The worker threads and barrier follow Raycaster's StripRenderer.
+     * * Hierarchical Z: a frame may be rasterized in several flush() passes. After each pass, every
+     * 8x8 block a tile touched records the farthest depth it holds. Before the next pass, submit()
+     * drops triangles whose nearest depth is behind the recorded depth of every block under their
+     * bounds, and occluded() answers the same question for an object's screen rectangle.
+     */
+    static class TileRasterizer implements AutoCloseable {
+        static final int TILE_SHIFT = 6;
+        static final int TILE = 1 << TILE_SHIFT;        // Tile side in pixels
+        static final int SUB_BITS = 4;                  // Sub-pixel bits of snapped vertices
+        static final int SUB = 1 << SUB_BITS;
+        static final float GUARD = 1 << 14;             // Larger coordinates need clipping; skipped
+        static final int BLOCK_SHIFT = 3;               // Hierarchical Z block of 8x8 pixels
+        static final int BLOCKS = TILE >> BLOCK_SHIFT;  // Blocks per tile side
 
-    static class Vec3 {
-        float x, y, z;
-        float w = 1; // 4th component for matrix math
+        final int width, height;
+        final int[] pixels;
+        final float[] zBuffer;                          // Tile-major, TILE * TILE floats per tile
+        private final int tilesX, tilesY;
+        private final int[][] bins;
+        private final int[] binCount;
+        private final float[] hiZ;                      // Farthest depth per block, BLOCKS * BLOCKS per tile
+        private final boolean[] cleared;                // Tile cleared in this frame
+        private boolean occlusion, hiZReady, finalPass;
+        private double queuedArea;
+        private int drawnTriangles, occludedTriangles;
 
-        Vec3(float x, float y, float z) { this.x = x; this.y = y; this.z = z; }
+        // Triangles of the current frame: snapped vertices, depths, pixel bounds, color
+        private int triCount;
+        private int[] vx = new int[3 * 256], vy = new int[3 * 256];
+        private float[] vz = new float[3 * 256];
+        private int[] bounds = new int[4 * 256];        // minX, minY, maxX, maxY (inclusive)
+        private int[] colors = new int[256];
+        private int clearColor;
 
-        Vec3 sub(Vec3 v) { return new Vec3(x - v.x, y - v.y, z - v.z); }
-        Vec3 add(Vec3 v) { return new Vec3(x + v.x, y + v.y, z + v.z); }
-        Vec3 scale(float s) { return new Vec3(x * s, y * s, z * s); }
+        private final Phaser phaser;
+        private final Thread[] workers;
+        private final AtomicInteger nextTile = new AtomicInteger();
+        private volatile Throwable failure; // First exception thrown by any thread; ends the rasterizer
 
-        float dot(Vec3 v) { return x * v.x + y * v.y + z * v.z; }
+        TileRasterizer(int width, int height, int[] pixels, int threads) {
+            if (width >= GUARD || height >= GUARD) {
+                throw new IllegalArgumentException("viewport " + width + "x" + height + " exceeds " + (int) GUARD + " pixels");
+            }
+            this.width = width;
+            this.height = height;
+            this.pixels = pixels;
+            this.tilesX = (width + TILE - 1) >> TILE_SHIFT;
+            this.tilesY = (height + TILE - 1) >> TILE_SHIFT;
+            this.zBuffer = new float[tilesX * tilesY * TILE * TILE];
+            this.bins = new int[tilesX * tilesY][16];
+            this.binCount = new int[tilesX * tilesY];
+            this.hiZ = new float[tilesX * tilesY * BLOCKS * BLOCKS];
+            this.cleared = new boolean[tilesX * tilesY];
+            threads = Math.max(1, threads);
 
-        Vec3 cross(Vec3 v) {
-            return new Vec3(y * v.z - z * v.y, z * v.x - x * v.z, x * v.y - y * v.x);
+            // One party per worker plus the calling thread
+            phaser = new Phaser(threads);
+            workers = new Thread[threads - 1];
+            for (int i = 0; i < workers.length; i++) {
+                workers[i] = new Thread(this::workerLoop, "rasterizer-tiles-" + i);
+                workers[i].setDaemon(true);
+                workers[i].start();
+            }
         }
 
-        Vec3 normalize() {
-            float len = (float) Math.sqrt(x*x + y*y + z*z);
-            if(len != 0) return new Vec3(x/len, y/len, z/len);
-            return this;
+        int threads() { return workers.length + 1; }
+        int drawnTriangles() { return drawnTriangles; }
+        int occludedTriangles() { return occludedTriangles; }
+        // Screen area of the triangles queued since the last flush, in pixels
+        double queuedArea() { return queuedArea; }
+
+        private void workerLoop() {
+            try {
+                while (true) {
+                    if (phaser.arriveAndAwaitAdvance() < 0) return; // Frame start (negative = closed)
+                    rasterizeTiles();
+                    if (phaser.arriveAndAwaitAdvance() < 0) return; // Frame done
+                }
+            } catch (Throwable t) {
+                fail(t);
+            }
+        }
+
+        // A thread that stops arriving would block the others forever, so end the Phaser for everyone
+        private void fail(Throwable t) {
+            if (failure == null) failure = t;
+            phaser.forceTermination();
+        }
+
+        void beginFrame(int clearColor, boolean occlusion) {
+            this.clearColor = clearColor;
+            this.occlusion = occlusion;
+            triCount = 0;
+            queuedArea = 0;
+            drawnTriangles = occludedTriangles = 0;
+            hiZReady = false;
+            Arrays.fill(binCount, 0);
+            Arrays.fill(cleared, false);
+            Arrays.fill(hiZ, Float.MAX_VALUE);
         }
-    }
 
-    static class Triangle {
-        Vec3 p1, p2, p3;
-        Triangle(Vec3 p1, Vec3 p2, Vec3 p3) { this.p1 = p1; this.p2 = p2; this.p3 = p3; }
+        /**
+         * Queues one screen-space triangle (x right, y down, z = depth). Either winding is accepted,
+         * backface and frustum culling are the caller's job.
+         */
+        void submit(float x0, float y0, float z0, float x1, float y1, float z1, float x2, float y2, float z2, int color) {
+            if (!(Math.abs(x0) < GUARD && Math.abs(y0) < GUARD && Math.abs(x1) < GUARD
+                    && Math.abs(y1) < GUARD && Math.abs(x2) < GUARD && Math.abs(y2) < GUARD)) return;
+            int ax = Math.round(x0 * SUB), ay = Math.round(y0 * SUB);
+            int bx = Math.round(x1 * SUB), by = Math.round(y1 * SUB);
+            int cx = Math.round(x2 * SUB), cy = Math.round(y2 * SUB);
+            long area = (long) (bx - ax) * (cy - ay) - (long) (by - ay) * (cx - ax);
+            if (area == 0) return;
+            if (area < 0) { // Make the edge functions positive inside
+                int t = bx; bx = cx; cx = t;
+                t = by; by = cy; cy = t;
+                float tz = z1; z1 = z2; z2 = tz;
+            }
+
+            // Pixels whose centre (x + 0.5, y + 0.5) lies inside the snapped bounding box
+            int minX = Math.max(0, (Math.min(ax, Math.min(bx, cx)) + SUB / 2 - 1) >> SUB_BITS);
+            int minY = Math.max(0, (Math.min(ay, Math.min(by, cy)) + SUB / 2 - 1) >> SUB_BITS);
+            int maxX = Math.min(width - 1, (Math.max(ax, Math.max(bx, cx)) - SUB / 2) >> SUB_BITS);
+            int maxY = Math.min(height - 1, (Math.max(ay, Math.max(by, cy)) - SUB / 2) >> SUB_BITS);
+            if (minX > maxX || minY > maxY) return;
+            if (hiZReady && occlusion && occluded(minX, minY, maxX, maxY, Math.min(z0, Math.min(z1, z2)))) {
+                occludedTriangles++;
+                return;
+            }
+            drawnTriangles++;
+            queuedArea += area / (2.0 * SUB * SUB) * Long.signum(area);
+
+            int t = triCount++;
+            if (t == colors.length) grow();
+            int v = 3 * t;
+            vx[v] = ax; vy[v] = ay; vz[v] = z0;
+            vx[v + 1] = bx; vy[v + 1] = by; vz[v + 1] = z1;
+            vx[v + 2] = cx; vy[v + 2] = cy; vz[v + 2] = z2;
+            int b = 4 * t;
+            bounds[b] = minX; bounds[b + 1] = minY; bounds[b + 2] = maxX; bounds[b + 3] = maxY;
+            colors[t] = color;
+
+            int tx0 = minX >> TILE_SHIFT, tx1 = maxX >> TILE_SHIFT;
+            int ty0 = minY >> TILE_SHIFT, ty1 = maxY >> TILE_SHIFT;
+            boolean single = tx0 == tx1 && ty0 == ty1;
+            for (int ty = ty0; ty <= ty1; ty++) {
+                for (int tx = tx0; tx <= tx1; tx++) {
+                    if (!single && !overlapsTile(v, tx, ty)) continue;
+                    int tile = ty * tilesX + tx;
+                    int n = binCount[tile]++;
+                    if (n == bins[tile].length) bins[tile] = Arrays.copyOf(bins[tile], n * 2);
+                    bins[tile][n] = t;
+                }
+            }
+        }
+
+        // False when the whole tile is outside one edge, judged at the tile corner furthest inside it
+        private boolean overlapsTile(int v, int tx, int ty) {
+            long left = (long) (tx << TILE_SHIFT) << SUB_BITS, right = left + ((long) TILE << SUB_BITS);
+            long top = (long) (ty << TILE_SHIFT) << SUB_BITS, bottom = top + ((long) TILE << SUB_BITS);
+            for (int e = 0; e < 3; e++) {
+                int i = v + e, j = v + (e + 1) % 3;
+                long dx = vx[j] - vx[i], dy = vy[j] - vy[i];
+                // E(p) = dx * (py - yi) - dy * (px - xi) grows with py when dx > 0 and with px when dy < 0
+                long px = dy < 0 ? right : left, py = dx > 0 ? bottom : top;
+                if (dx * (py - vy[i]) - dy * (px - vx[i]) < 0) return false;
+            }
+            return true;
+        }
+
+        private void grow() {
+            int n = colors.length * 2;
+            vx = Arrays.copyOf(vx, 3 * n); vy = Arrays.copyOf(vy, 3 * n); vz = Arrays.copyOf(vz, 3 * n);
+            bounds = Arrays.copyOf(bounds, 4 * n);
+            colors = Arrays.copyOf(colors, n);
+        }
+
+        /**
+         * True when every block under [minX, maxX] x [minY, maxY] already holds only depths nearer
+         * than minZ, so nothing at minZ or farther can pass the depth test there.
+         */
+        boolean occluded(int minX, int minY, int maxX, int maxY, float minZ) {
+            if (!hiZReady) return false;
+            for (int by = minY >> BLOCK_SHIFT, by1 = maxY >> BLOCK_SHIFT; by <= by1; by++) {
+                int rowTile = (by / BLOCKS) * tilesX, rowBlock = (by % BLOCKS) * BLOCKS;
+                for (int bx = minX >> BLOCK_SHIFT, bx1 = maxX >> BLOCK_SHIFT; bx <= bx1; bx++) {
+                    int tile = rowTile + bx / BLOCKS;
+                    if (hiZ[tile * BLOCKS * BLOCKS + rowBlock + bx % BLOCKS] >= minZ) return false;
+                }
+            }
+            return true;
+        }
+
+        // Rasterizes everything queued so far and refreshes the hierarchical Z of the touched blocks
+        void flush() {
+            rasterizePass(false);
+        }
+
+        void endFrame() {
+            rasterizePass(true); // Nothing is tested after this pass, so hierarchical Z is not updated
+        }
+
+        private void rasterizePass(boolean finalPass) {
+            this.finalPass = finalPass;
+            nextTile.set(0);
+            try {
+                phaser.arriveAndAwaitAdvance(); // Release the workers
+                rasterizeTiles();
+                phaser.arriveAndAwaitAdvance(); // Wait until every tile is filled
+            } catch (Throwable t) {
+                fail(t);
+            }
+            if (phaser.isTerminated()) {
+                Throwable t = failure;
+                if (t instanceof RuntimeException) throw (RuntimeException) t;
+                if (t instanceof Error) throw (Error) t;
+                throw new IllegalStateException("Rasterizer is closed", t);
+            }
+            triCount = 0;
+            queuedArea = 0;
+            hiZReady = true;
+        }
+
+        private void rasterizeTiles() {
+            int tile;
+            while ((tile = nextTile.getAndIncrement()) < binCount.length) {
+                rasterizeTile(tile);
+            }
+        }
+
+        void rasterizeTile(int tile) {
+            int x0 = (tile % tilesX) << TILE_SHIFT, y0 = (tile / tilesX) << TILE_SHIFT;
+            int x1 = Math.min(width, x0 + TILE), y1 = Math.min(height, y0 + TILE);
+            int zBase = tile << (2 * TILE_SHIFT);
+
+            // Clear this tile's slice of the buffers on its first pass of the frame
+            if (!cleared[tile]) {
+                Arrays.fill(zBuffer, zBase, zBase + TILE * TILE, Float.MAX_VALUE); // Init Depth to infinity
+                for (int y = y0; y < y1; y++) Arrays.fill(pixels, y * width + x0, y * width + x1, clearColor);
+                cleared[tile] = true;
+            }
+
+            int n = binCount[tile];
+            if (n == 0) return;
+            binCount[tile] = 0;
+            int[] bin = bins[tile];
+            int dirtyX0 = x1, dirtyY0 = y1, dirtyX1 = x0, dirtyY1 = y0;
+            for (int k = 0; k < n; k++) {
+                int t = bin[k];
+                drawTriangle(t, x0, y0, x1 - 1, y1 - 1, zBase);
+                dirtyX0 = Math.min(dirtyX0, bounds[4 * t]); dirtyY0 = Math.min(dirtyY0, bounds[4 * t + 1]);
+                dirtyX1 = Math.max(dirtyX1, bounds[4 * t + 2]); dirtyY1 = Math.max(dirtyY1, bounds[4 * t + 3]);
+            }
+            if (occlusion && !finalPass) {
+                updateHiZ(tile, x0, y0, Math.max(dirtyX0, x0), Math.max(dirtyY0, y0),
+                          Math.min(dirtyX1, x1 - 1), Math.min(dirtyY1, y1 - 1));
+            }
+        }
+
+        // Recomputes the farthest depth of the blocks of this tile covering [dx0, dx1] x [dy0, dy1]
+        private void updateHiZ(int tile, int x0, int y0, int dx0, int dy0, int dx1, int dy1) {
+            int zBase = tile << (2 * TILE_SHIFT), hBase = tile * BLOCKS * BLOCKS;
+            for (int by = (dy0 - y0) >> BLOCK_SHIFT; by <= (dy1 - y0) >> BLOCK_SHIFT; by++) {
+                int ly0 = by << BLOCK_SHIFT, ly1 = Math.min(ly0 + (1 << BLOCK_SHIFT), height - y0);
+                for (int bx = (dx0 - x0) >> BLOCK_SHIFT; bx <= (dx1 - x0) >> BLOCK_SHIFT; bx++) {
+                    int lx0 = bx << BLOCK_SHIFT, lx1 = Math.min(lx0 + (1 << BLOCK_SHIFT), width - x0);
+                    float far = 0;
+                    for (int ly = ly0; ly < ly1; ly++) {
+                        int row = zBase + (ly << TILE_SHIFT);
+                        for (int lx = lx0; lx < lx1; lx++) far = Math.max(far, zBuffer[row + lx]);
+                    }
+                    hiZ[hBase + by * BLOCKS + bx] = far;
+                }
+            }
+        }
+
+        /**
+         * Fills triangle t inside the tile [tileX0, tileX1] x [tileY0, tileY1]. The three edge
+         * functions are evaluated once at the first pixel centre and then stepped by constants;
+         * a pixel is inside when all three are non-negative after the fill-rule bias.
+         */
+        private void drawTriangle(int t, int tileX0, int tileY0, int tileX1, int tileY1, int zBase) {
+            int b = 4 * t;
+            int minX = Math.max(tileX0, bounds[b]), minY = Math.max(tileY0, bounds[b + 1]);
+            int maxX = Math.min(tileX1, bounds[b + 2]), maxY = Math.min(tileY1, bounds[b + 3]);
+            if (minX > maxX || minY > maxY) return;
+
+            int v = 3 * t;
+            int ax = vx[v], ay = vy[v], bx = vx[v + 1], by = vy[v + 1], cx = vx[v + 2], cy = vy[v + 2];
+            long px = ((long) minX << SUB_BITS) + SUB / 2, py = ((long) minY << SUB_BITS) + SUB / 2;
+
+            // Edge a->b, b->c, c->a: E(p) = dx * (py - yi) - dy * (px - xi)
+            long w0Row = edge(ax, ay, bx, by, px, py), w1Row = edge(bx, by, cx, cy, px, py), w2Row = edge(cx, cy, ax, ay, px, py);
+            long w0dx = -(long) (by - ay) << SUB_BITS, w0dy = (long) (bx - ax) << SUB_BITS;
+            long w1dx = -(long) (cy - by) << SUB_BITS, w1dy = (long) (cx - bx) << SUB_BITS;
+            long w2dx = -(long) (ay - cy) << SUB_BITS, w2dy = (long) (ax - cx) << SUB_BITS;
+
+            // Depth plane through the snapped vertices, in pixels
+            float x10 = (bx - ax) / (float) SUB, y10 = (by - ay) / (float) SUB;
+            float x20 = (cx - ax) / (float) SUB, y20 = (cy - ay) / (float) SUB;
+            float det = x10 * y20 - x20 * y10;
+            float za = vz[v], z10 = vz[v + 1] - za, z20 = vz[v + 2] - za;
+            float zdx = (z10 * y20 - z20 * y10) / det;
+            float zdy = (z20 * x10 - z10 * x20) / det;
+            float zRow = za + zdx * ((px - ax) / (float) SUB) + zdy * ((py - ay) / (float) SUB);
+
+            int color = colors[t];
+            int[] pixels = this.pixels;
+            float[] zBuffer = this.zBuffer;
+            for (int y = minY; y <= maxY; y++) {
+                long w0 = w0Row, w1 = w1Row, w2 = w2Row;
+                float z = zRow;
+                int idx = y * width + minX;
+                int zi = zBase + ((y - tileY0) << TILE_SHIFT) + (minX - tileX0);
+                for (int x = minX; x <= maxX; x++, idx++, zi++) {
+                    // Check if point is inside triangle (all three signs clear)
+                    if ((w0 | w1 | w2) >= 0 && z < zBuffer[zi]) {
+                        zBuffer[zi] = z;
+                        pixels[idx] = color;
+                    }
+                    w0 += w0dx; w1 += w1dx; w2 += w2dx;
+                    z += zdx;
+                }
+                w0Row += w0dy; w1Row += w1dy; w2Row += w2dy;
+                zRow += zdy;
+            }
+        }
+
+        // Edge function at p, minus 1 unless the edge is a top or left edge (top-left fill rule)
+        private static long edge(int xi, int yi, int xj, int yj, long px, long py) {
+            int dx = xj - xi, dy = yj - yi;
+            boolean topLeft = dy < 0 || (dy == 0 && dx > 0);
+            return (long) dx * (py - yi) - (long) dy * (px - xi) - (topLeft ? 0 : 1);
+        }
+
+        @Override
+        public void close() {
+            phaser.forceTermination();
+        }
     }
 
+    // --- MATH HELPERS ---
+
+    /**
+     * Indexed triangle mesh: xyz per vertex in vertices, three vertex indices per triangle in indices.
+     * Faces are wound so that (v2 - v1) x (v3 - v1) points into the solid; shared corners are stored once.
+     */
     static class Mesh {
-        List<Triangle> tris = new ArrayList<>();
-    }
+        float[] vertices = new float[3 * 16];
+        int[] indices = new int[3 * 16];
+        int vertexCount, triangleCount;
+        private float[] bounds; // Bounding sphere x, y, z, radius; null until needed
 
-    static class Matrix4 {
-        float[][] m = new float[4][4];
+        int addVertex(float x, float y, float z) {
+            bounds = null;
+            if (3 * vertexCount == vertices.length) vertices = Arrays.copyOf(vertices, vertices.length * 2);
+            int i = 3 * vertexCount;
+            vertices[i] = x; vertices[i + 1] = y; vertices[i + 2] = z;
+            return vertexCount++;
+        }
+
+        void addTriangle(int a, int b, int c) {
+            if (3 * triangleCount == indices.length) indices = Arrays.copyOf(indices, indices.length * 2);
+            int i = 3 * triangleCount++;
+            indices[i] = a; indices[i + 1] = b; indices[i + 2] = c;
+        }
+
+        void append(Mesh other) {
+            int base = vertexCount;
+            for (int i = 0; i < other.vertexCount; i++) {
+                addVertex(other.vertices[3 * i], other.vertices[3 * i + 1], other.vertices[3 * i + 2]);
+            }
+            for (int i = 0; i < 3 * other.triangleCount; i += 3) {
+                addTriangle(base + other.indices[i], base + other.indices[i + 1], base + other.indices[i + 2]);
+            }
+        }
 
-        // Transforms a vector (Rotation/Translation)
-        Vec3 multiply(Vec3 i) {
-            Vec3 o = new Vec3(0,0,0);
-            o.x = i.x * m[0][0] + i.y * m[1][0] + i.z * m[2][0] + m[3][0];
-            o.y = i.x * m[0][1] + i.y * m[1][1] + i.z * m[2][1] + m[3][1];
-            o.z = i.x * m[0][2] + i.y * m[1][2] + i.z * m[2][2] + m[3][2];
-            float w = i.x * m[0][3] + i.y * m[1][3] + i.z * m[2][3] + m[3][3];
-            if (w != 0) o.w = w;
-            return o;
+        // Centres the mesh on its bounding box and scales it to the given bounding radius
+        Mesh fit(float radius) {
+            float[] min = {Float.MAX_VALUE, Float.MAX_VALUE, Float.MAX_VALUE};
+            float[] max = {-Float.MAX_VALUE, -Float.MAX_VALUE, -Float.MAX_VALUE};
+            for (int i = 0; i < 3 * vertexCount; i++) {
+                min[i % 3] = Math.min(min[i % 3], vertices[i]);
+                max[i % 3] = Math.max(max[i % 3], vertices[i]);
+            }
+            float r = 0;
+            for (int k = 0; k < 3; k++) r = Math.max(r, (max[k] - min[k]) * 0.5f);
+            float scale = r > 0 ? radius / r : 1;
+            for (int i = 0; i < 3 * vertexCount; i++) {
+                vertices[i] = (vertices[i] - (min[i % 3] + max[i % 3]) * 0.5f) * scale;
+            }
+            bounds = null;
+            return this;
         }
 
-        // Projects a vector (Perspective Division)
-        Vec3 multiplyProject(Vec3 i) {
-            Vec3 o = multiply(i);
-            if (o.w != 0) {
-                o.x /= o.w; o.y /= o.w; o.z /= o.w;
+        // Sphere around the bounding box centre through the farthest vertex
+        float[] bounds() {
+            if (bounds == null) {
+                float[] min = {Float.MAX_VALUE, Float.MAX_VALUE, Float.MAX_VALUE};
+                float[] max = {-Float.MAX_VALUE, -Float.MAX_VALUE, -Float.MAX_VALUE};
+                for (int i = 0; i < 3 * vertexCount; i++) {
+                    min[i % 3] = Math.min(min[i % 3], vertices[i]);
+                    max[i % 3] = Math.max(max[i % 3], vertices[i]);
+                }
+                float[] b = new float[4];
+                for (int k = 0; k < 3; k++) b[k] = (min[k] + max[k]) * 0.5f;
+                double r2 = 0;
+                for (int i = 0; i < 3 * vertexCount; i += 3) {
+                    double dx = vertices[i] - b[0], dy = vertices[i + 1] - b[1], dz = vertices[i + 2] - b[2];
+                    r2 = Math.max(r2, dx * dx + dy * dy + dz * dz);
+                }
+                b[3] = (float) Math.sqrt(r2) * 1.0001f + 1e-6f; // Cover float rounding of the transform
+                bounds = b;
             }
-            return o;
+            return bounds;
         }
+    }
+
+    /** A mesh placed in the world. Spinning objects take the frame's rotation about their own origin. */
+    static class SceneObject {
+        final Mesh mesh;
+        final float x, y, z;
+        final boolean spin;
+        // Per frame: model-view matrix and bounding sphere centre in view space
+        Matrix4 view;
+        float viewX, viewY, viewZ;
+
+        SceneObject(Mesh mesh, float x, float y, float z, boolean spin) {
+            this.mesh = mesh;
+            this.x = x; this.y = y; this.z = z;
+            this.spin = spin;
+        }
+    }
+
+    private static final Comparator<SceneObject> NEAREST_FIRST = (a, b) -> Float.compare(a.viewZ, b.viewZ);
+
+    static class Matrix4 {
+        float[][] m = new float[4][4];
 
         Matrix4 multiply(Matrix4 other) {
             Matrix4 res = new Matrix4();
@@ -324,14 +1035,12 @@ public class SoftwareRenderer extends JPanel implements Runnable {
         }
     }
 
-    private Mesh createCube(float x, float y, float z, float w, float h, float d) {
+    private static Mesh createCube(float x, float y, float z, float w, float h, float d) {
         Mesh m = new Mesh();
         float hw = w/2, hh = h/2, hd = d/2;
-        // Vertices
-        Vec3[] v = {
-                new Vec3(x-hw, y-hh, z-hd), new Vec3(x+hw, y-hh, z-hd), new Vec3(x+hw, y+hh, z-hd), new Vec3(x-hw, y+hh, z-hd), // Front
-                new Vec3(x-hw, y-hh, z+hd), new Vec3(x+hw, y-hh, z+hd), new Vec3(x+hw, y+hh, z+hd), new Vec3(x-hw, y+hh, z+hd)  // Back
-        };
+        // Vertices (indices 0..7)
+        m.addVertex(x-hw, y-hh, z-hd); m.addVertex(x+hw, y-hh, z-hd); m.addVertex(x+hw, y+hh, z-hd); m.addVertex(x-hw, y+hh, z-hd); // Front
+        m.addVertex(x-hw, y-hh, z+hd); m.addVertex(x+hw, y-hh, z+hd); m.addVertex(x+hw, y+hh, z+hd); m.addVertex(x-hw, y+hh, z+hd); // Back
         // Indices (Triangles)
         int[][] idx = {
                 {0,1,2}, {0,2,3}, // Front
@@ -341,7 +1050,73 @@ public class SoftwareRenderer extends JPanel implements Runnable {
                 {3,2,6}, {3,6,7}, // Top
                 {4,5,1}, {4,1,0}  // Bottom
         };
-        for (int[] i : idx) m.tris.add(new Triangle(v[i[0]], v[i[1]], v[i[2]]));
+        for (int[] i : idx) m.addTriangle(i[0], i[1], i[2]);
+        return m;
+    }
+
+    /**
+     * UV sphere of about the given number of triangles, wound like createCube so the same
+     * culling and lighting apply. Used for dense-mesh demos and benchmarks.
+     */
+    static Mesh createSphere(float r, int triangles) {
+        Mesh m = new Mesh();
+        int rings = Math.max(2, (int) Math.sqrt(triangles / 4.0));
+        int segments = Math.max(3, triangles / (2 * rings));
+        for (int i = 0; i <= rings; i++) {
+            double theta = Math.PI * i / rings;
+            for (int j = 0; j <= segments; j++) {
+                double phi = 2 * Math.PI * j / segments;
+                m.addVertex((float) (r * Math.sin(theta) * Math.cos(phi)), (float) (r * Math.cos(theta)),
+                        (float) (r * Math.sin(theta) * Math.sin(phi)));
+            }
+        }
+        int row = segments + 1;
+        for (int i = 0; i < rings; i++) {
+            for (int j = 0; j < segments; j++) {
+                int v = i * row + j;
+                // The pole rows would each give one zero-area triangle per quad
+                if (i < rings - 1) m.addTriangle(v, v + row, v + row + 1);
+                if (i > 0) m.addTriangle(v, v + row + 1, v + 1);
+            }
+        }
+        return m;
+    }
+
+    /**
+     * Loads the vertices and faces of a Wavefront OBJ file; texture coordinates, normals, groups
+     * and materials are ignored. Polygons are split into triangle fans and negative (relative)
+     * indices are resolved. OBJ is right-handed, so z is negated: that turns its counter-clockwise
+     * faces into this renderer's winding and keeps the model from appearing mirrored.
+     */
+    static Mesh loadObj(Path path) throws IOException {
+        Mesh m = new Mesh();
+        int[] face = new int[16];
+        try (BufferedReader in = Files.newBufferedReader(path)) {
+            String line;
+            int lineNo = 0;
+            while ((line = in.readLine()) != null) {
+                lineNo++;
+                line = line.trim();
+                if (line.startsWith("v ")) {
+                    String[] t = line.split("\\s+");
+                    m.addVertex(Float.parseFloat(t[1]), Float.parseFloat(t[2]), -Float.parseFloat(t[3]));
+                } else if (line.startsWith("f ")) {
+                    String[] t = line.split("\\s+");
+                    int n = t.length - 1;
+                    if (n < 3) throw new IOException(path + ":" + lineNo + ": face with fewer than 3 vertices");
+                    if (n > face.length) face = new int[n];
+                    for (int k = 0; k < n; k++) {
+                        String ref = t[k + 1];
+                        int slash = ref.indexOf('/');
+                        int index = Integer.parseInt(slash < 0 ? ref : ref.substring(0, slash));
+                        index = index < 0 ? m.vertexCount + index : index - 1;
+                        if (index < 0 || index >= m.vertexCount) throw new IOException(path + ":" + lineNo + ": vertex index out of range");
+                        face[k] = index;
+                    }
+                    for (int k = 1; k < n - 1; k++) m.addTriangle(face[0], face[k], face[k + 1]);
+                }
+            }
+        }
         return m;
     }
 }
\ No newline at end of file
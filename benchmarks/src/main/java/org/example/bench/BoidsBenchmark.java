@@ -0,0 +1,76 @@
+package org.example.bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One simulation tick of BoidsSimulation: flock + update + borders for every boid.
+ * tick scans the whole flock per boid (the original O(n^2) rules), tickGrid goes through
+ * the uniform grid, tickEngine runs the structure-of-arrays FlockEngine the demo uses.
+ * Boids start scattered over the window from a fixed seed.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@State(Scope.Thread)
+public class BoidsBenchmark {
+
+    @Param({"150", "1000", "5000"})
+    public int flockSize;
+
+    private List<BoidsSimulation.Boid> flock;
+    private List<BoidsSimulation.Obstacle> obstacles;
+    private BoidsSimulation.SpatialGrid grid;
+    private BoidsSimulation.FlockEngine engine;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Random rand = new Random(42);
+        flock = new ArrayList<>();
+        for (int i = 0; i < flockSize; i++) {
+            flock.add(new BoidsSimulation.Boid(rand.nextDouble() * 800, rand.nextDouble() * 600));
+        }
+        obstacles = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            obstacles.add(new BoidsSimulation.Obstacle(rand.nextInt(800), rand.nextInt(600), 40));
+        }
+        grid = new BoidsSimulation.SpatialGrid(BoidsSimulation.NEIGHBOR_DIST, 800, 600);
+        engine = new BoidsSimulation.FlockEngine(flockSize, 42, 800, 600);
+        engine.scatter();
+    }
+
+    @Benchmark
+    public List<BoidsSimulation.Boid> tick() {
+        for (BoidsSimulation.Boid boid : flock) {
+            boid.flock(flock, obstacles);
+            boid.update();
+            boid.borders();
+        }
+        return flock;
+    }
+
+    @Benchmark
+    public List<BoidsSimulation.Boid> tickGrid() {
+        grid.build(flock);
+        for (BoidsSimulation.Boid boid : flock) {
+            boid.flock(grid, obstacles);
+        }
+        for (BoidsSimulation.Boid boid : flock) {
+            boid.update();
+            boid.borders();
+        }
+        return flock;
+    }
+
+    @Benchmark
+    public double[] tickEngine() {
+        engine.step(obstacles);
+        return engine.x;
+    }
+}
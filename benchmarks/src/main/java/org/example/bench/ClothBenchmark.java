@@ -0,0 +1,44 @@
+package org.example.bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One ClothEngine.step() per invocation: Verlet integration plus ITERATIONS relaxation passes
+ * with tearing, for the default 40x30 cloth and a 500x500 one, with each color batch relaxed
+ * serially or split across the common ForkJoin pool.
+ * The cloth is released 60 steps before measuring, so it is falling, stretching and tearing.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@State(Scope.Thread)
+public class ClothBenchmark {
+
+    @Param({"40x30", "500x500"})
+    public String grid;
+
+    @Param({"false", "true"})
+    public boolean parallel;
+
+    private ClothSimulation.ClothEngine cloth;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        String[] size = grid.split("x");
+        cloth = new ClothSimulation.ClothEngine(Integer.parseInt(size[0]), Integer.parseInt(size[1]), 1000, 700);
+        cloth.parallel = parallel;
+        for (int i = 0; i < 60; i++) {
+            cloth.step();
+        }
+    }
+
+    @Benchmark
+    public double[] step() {
+        cloth.step();
+        return cloth.x;
+    }
+}
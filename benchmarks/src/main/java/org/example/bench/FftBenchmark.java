@@ -0,0 +1,41 @@
+package org.example.bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * AudioVisualizer.fft on a Hanning-windowed frame, same shape as the capture loop feeds it.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@State(Scope.Thread)
+public class FftBenchmark {
+
+    @Param({"1024", "4096"})
+    public int size;
+
+    private AudioVisualizer visualizer;
+    private AudioVisualizer.Complex[] frame;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        visualizer = new AudioVisualizer();
+        frame = new AudioVisualizer.Complex[size];
+        for (int i = 0; i < size; i++) {
+            // 440 Hz + 3 kHz tones at 44.1 kHz
+            double sample = 0.6 * Math.sin(2 * Math.PI * 440 * i / 44100.0)
+                    + 0.3 * Math.sin(2 * Math.PI * 3000 * i / 44100.0);
+            double window = 0.5 * (1 - Math.cos(2 * Math.PI * i / (size - 1)));
+            frame[i] = new AudioVisualizer.Complex(sample * window, 0);
+        }
+    }
+
+    @Benchmark
+    public AudioVisualizer.Complex[] fft() {
+        return visualizer.fft(frame);
+    }
+}
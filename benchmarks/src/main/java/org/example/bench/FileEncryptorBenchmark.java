@@ -0,0 +1,77 @@
+package org.example.bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * FileEncryptor.encryptFile / decryptFile round trips on a temp file.
+ *
+ * PBKDF2 iterations are a parameter: the low value isolates the AES-GCM streaming path,
+ * the default (200_000) shows what a real invocation costs end to end.
+ * Progress output is swallowed so it does not flood the JMH log.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@State(Scope.Thread)
+public class FileEncryptorBenchmark {
+
+    private static final char[] PASSWORD = "BenchPassword123!".toCharArray();
+
+    @Param({"1048576", "16777216"})
+    public int fileSize;
+
+    @Param({"1000", "200000"})
+    public int iterations;
+
+    private Path dir, plain, enc, dec;
+    private PrintStream originalOut;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        originalOut = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+
+        dir = Files.createTempDirectory("fe_bench");
+        plain = dir.resolve("plain.bin");
+        enc = dir.resolve("plain.bin.enc");
+        dec = dir.resolve("plain.bin.dec");
+
+        byte[] data = new byte[fileSize];
+        new Random(7).nextBytes(data);
+        Files.write(plain, data);
+
+        FileEncryptor.encryptFile(plain, enc, PASSWORD, iterations);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        System.setOut(originalOut);
+        Files.deleteIfExists(plain);
+        Files.deleteIfExists(enc);
+        Files.deleteIfExists(dec);
+        Files.deleteIfExists(dir.resolve("encrypt.out"));
+        Files.deleteIfExists(dir);
+    }
+
+    @Benchmark
+    public Path encryptFile() throws Exception {
+        Path out = dir.resolve("encrypt.out");
+        FileEncryptor.encryptFile(plain, out, PASSWORD, iterations);
+        return out;
+    }
+
+    @Benchmark
+    public Path decryptFile() throws Exception {
+        FileEncryptor.decryptFile(enc, dec, PASSWORD);
+        return dec;
+    }
+}
@@ -0,0 +1,53 @@
+package org.example.bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One FluidSolver.step() per invocation, lexicographic vs red-black (parallel) Gauss-Seidel,
+ * and fixed-iteration vs multigrid pressure projection.
+ * A dye/velocity splat is injected every invocation so the fields never decay to zero.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@State(Scope.Thread)
+public class FluidSolverBenchmark {
+
+    @Param({"128", "512"})
+    public int size;
+
+    @Param({"false", "true"})
+    public boolean redBlack;
+
+    @Param({"false", "true"})
+    public boolean multigrid;
+
+    private FluidSimulation.FluidSolver solver;
+    private int tick;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        solver = new FluidSimulation.FluidSolver(size);
+        solver.redBlack = redBlack;
+        solver.multigrid = multigrid;
+        for (int i = 0; i < 60; i++) {
+            splat();
+            solver.step();
+        }
+    }
+
+    private void splat() {
+        FluidSimulation.scriptedSplat(solver, tick++);
+    }
+
+    @Benchmark
+    public float step() {
+        splat();
+        solver.step();
+        return solver.densityR[solver.size * solver.size / 2];
+    }
+}
@@ -0,0 +1,46 @@
+package org.example.bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One GameOfLife.nextGeneration() on a square toroidal grid.
+ * "Random" re-seeds the ~30% soup per iteration so every iteration measures a busy board;
+ * "Glider" is the sparse case, where cost should follow activity rather than area.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@State(Scope.Thread)
+public class GameOfLifeBenchmark {
+
+    @Param({GameOfLife.ENGINE_ARRAY, GameOfLife.ENGINE_BIT_PACKED, GameOfLife.ENGINE_SPARSE})
+    public String engine;
+
+    @Param({"Random", "Glider"})
+    public String pattern;
+
+    @Param({"128", "2048"})
+    public int size;
+
+    private GameOfLife game;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        game = new GameOfLife(size, size, engine);
+    }
+
+    @Setup(Level.Iteration)
+    public void seed() {
+        if (pattern.equals("Random")) game.randomize();
+        else game.loadPattern(pattern);
+    }
+
+    @Benchmark
+    public void nextGeneration() {
+        game.nextGeneration();
+    }
+}
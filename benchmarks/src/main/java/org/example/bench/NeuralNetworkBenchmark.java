@@ -0,0 +1,39 @@
+package org.example.bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One SGD step of NeuralNetViz.NeuralNetwork.train on the XOR set the visualizer starts with.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@State(Scope.Thread)
+public class NeuralNetworkBenchmark {
+
+    private static final double[][] INPUTS = {{0.2, 0.2}, {0.8, 0.8}, {0.8, 0.2}, {0.2, 0.8}};
+    private static final double[][] TARGETS = {{0}, {0}, {1}, {1}};
+
+    @Param({"6", "20"})
+    public int hidden;
+
+    private NeuralNetViz.NeuralNetwork nn;
+    private int sample;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        nn = new NeuralNetViz.NeuralNetwork(2, hidden, 1);
+    }
+
+    @Benchmark
+    public NeuralNetViz.NeuralNetwork train() {
+        int k = sample;
+        sample = (sample + 1) & 3;
+        nn.train(INPUTS[k], TARGETS[k], 0.05);
+        return nn;
+    }
+}
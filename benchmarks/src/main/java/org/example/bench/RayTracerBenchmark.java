@@ -0,0 +1,71 @@
+package org.example.bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * rayColor: one camera ray through TileRenderer.rayColor (max depth 20, as the renderer uses).
+ * Rays walk a fixed 64x36 grid of image positions so every material in the scene is hit.
+ * Both benchmarks reuse scratch buffers like the tiles do, so gc.alloc.rate.norm should be ~0.
+ * renderPass: one full tile-parallel pass (1 sample per pixel) over a 200x112 image;
+ * samples/s = ops/s * 22400 (adaptive sampling off, so every pass traces every pixel).
+ * spheres = 0 is the demo scene, otherwise the random sphere field of that size;
+ * bvh selects the flattened BVH over the plain HittableList scan.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@State(Scope.Thread)
+public class RayTracerBenchmark {
+
+    private static final int GRID_W = 64;
+    private static final int GRID_H = 36;
+    private static final int MAX_DEPTH = 20;
+
+    @Param({"0", "2000"})
+    public int spheres;
+
+    @Param({"false", "true"})
+    public boolean bvh;
+
+    private RayTracer.RenderPanel panel;
+    private RayTracer.Hittable scene;
+    private RayTracer.TileRenderer passRenderer;
+    private SplittableRandom rng;
+    private final RayTracer.TileRenderer.PathScratch scratch = new RayTracer.TileRenderer.PathScratch();
+    private final RayTracer.Ray ray = new RayTracer.Ray();
+    private int pixel;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        panel = new RayTracer.RenderPanel(800, 450, spheres);
+        scene = bvh ? panel.bvh : panel.world;
+        rng = new SplittableRandom(42);
+
+        RayTracer.RenderPanel small = new RayTracer.RenderPanel(200, 112, spheres);
+        passRenderer = new RayTracer.TileRenderer(200, 112, bvh ? small.bvh : small.world, small.camera, new int[200 * 112], 42);
+        passRenderer.setAdaptive(false);
+    }
+
+    @Benchmark
+    public RayTracer.Vec3 rayColor() {
+        int i = pixel % GRID_W;
+        int j = pixel / GRID_W;
+        pixel = (pixel + 1) % (GRID_W * GRID_H);
+
+        double u = (i + 0.5) / GRID_W;
+        double v = (j + 0.5) / GRID_H;
+        RayTracer.Ray r = panel.camera.getRay(u, v, ray);
+        return RayTracer.TileRenderer.rayColor(r, scene, MAX_DEPTH, rng, scratch);
+    }
+
+    @Benchmark
+    public int renderPass() {
+        passRenderer.renderPass();
+        return passRenderer.samples();
+    }
+}
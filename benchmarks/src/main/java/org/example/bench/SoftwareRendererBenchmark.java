@@ -0,0 +1,59 @@
+package org.example.bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One full SoftwareRenderer frame: transform, shading, binning into tiles and the parallel
+ * tile rasterization, at 1080p. scene = ship is the 40-triangle demo spaceship, sphere100k a UV
+ * sphere of ~100k triangles filling most of the screen, field the ~1M-triangle culling scene
+ * (most objects hidden by a wall or outside the view). A path ending in .obj benchmarks a real
+ * model instead, e.g. -p scene=/models/bunny.obj (loaded, then fitted to the ship's size).
+ * culling = false turns off frustum and hierarchical-Z culling (backface culling stays on).
+ * Every frame advances the rotation, so the JIT cannot specialise on one view.
+ * threads = 1 is the single-threaded baseline; 60 fps is 16.7 ms.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@State(Scope.Thread)
+public class SoftwareRendererBenchmark {
+
+    @Param({"ship", "sphere100k", "field"})
+    public String scene;
+
+    @Param({"1", "4"})
+    public int threads;
+
+    @Param({"false", "true"})
+    public boolean culling;
+
+    private SoftwareRenderer renderer;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        if (scene.equals("field")) {
+            renderer = new SoftwareRenderer(1920, 1080, threads, SoftwareRenderer.createField());
+        } else {
+            SoftwareRenderer.Mesh m;
+            if (scene.endsWith(".obj")) m = SoftwareRenderer.loadObj(Paths.get(scene)).fit(2.0f);
+            else if (scene.equals("ship")) m = SoftwareRenderer.createShip();
+            else m = SoftwareRenderer.createSphere(1.8f, 100_000);
+            renderer = new SoftwareRenderer(1920, 1080, threads, m);
+        }
+        renderer.frustumCulling = culling;
+        renderer.occlusionCulling = culling;
+    }
+
+    @Benchmark
+    public SoftwareRenderer renderFrame() {
+        renderer.update();
+        renderer.render();
+        return renderer;
+    }
+}